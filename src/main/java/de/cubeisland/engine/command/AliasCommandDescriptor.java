@@ -83,6 +83,18 @@ public class AliasCommandDescriptor implements CommandDescriptor
         return this.parent;
     }
 
+    @Override
+    public boolean isAsynchronous()
+    {
+        return target.isAsynchronous();
+    }
+
+    @Override
+    public CommandRateLimit getRateLimit()
+    {
+        return target.getRateLimit();
+    }
+
     @Override
     public DelegatingContextFilter getDelegation()
     {
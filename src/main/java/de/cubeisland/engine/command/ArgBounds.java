@@ -46,6 +46,17 @@ public class ArgBounds
     }
 
     public ArgBounds(List<CommandParameterIndexed> indexed)
+    {
+        this(indexed, null);
+    }
+
+    /**
+     * Calculates the bounds of the given parameters in tokens
+     *
+     * @param indexed the indexed parameters
+     * @param arities the amount of tokens read by each parameter or null if all of them read one
+     */
+    public ArgBounds(List<CommandParameterIndexed> indexed, int[] arities)
     {
         int tMin = 0;
         int tMax = 0;
@@ -65,15 +76,21 @@ public class ArgBounds
                 }
                 throw new IllegalArgumentException("Greedy arguments are only allowed at the end!");
             }
+            // the first parameter of a group counts the tokens of the whole group
+            int tokens = 0;
+            for (int j = i; j < i + indexedParam.getCount() && j < indexed.size(); j++)
+            {
+                tokens += arities == null ? 1 : arities[j];
+            }
             if (indexedParam.isGroupRequired())
             {
-                tMin += indexedParam.getCount();
+                tMin += tokens;
                 if (!indexedParam.isRequired())
                 {
-                    tMin -= 1;
+                    tMin -= arities == null ? 1 : arities[i];
                 }
             }
-            tMax += indexedParam.getCount();
+            tMax += tokens;
         }
         this.min = tMin;
         this.max = tMax;
@@ -0,0 +1,410 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs asynchronous commands on an {@link Executor}.
+ * The commands of each sender run one after another in the order they got submitted in,
+ * the commands of different senders run in parallel.
+ * Exceptions thrown by these commands are reported back on the owning thread through the sync executor.
+ */
+public class AsyncCommandEngine
+{
+    private static final UUID NO_ID = new UUID(0L, 0L);
+
+    private final Executor executor;
+    private final ExecutorService workers;
+    private final Executor syncExecutor;
+    private final ConcurrentMap<UUID, Lane> lanes = new ConcurrentHashMap<UUID, Lane>();
+    private final Object lock = new Object();
+    private int inFlight = 0;
+    private boolean shutdown = false;
+
+    /**
+     * @param executor     the executor to run the commands on
+     * @param syncExecutor the executor of the owning thread, e.g. the main thread of the server
+     */
+    public AsyncCommandEngine(Executor executor, Executor syncExecutor)
+    {
+        if (executor == null || syncExecutor == null)
+        {
+            throw new IllegalArgumentException("The executors must not be null!");
+        }
+        this.executor = executor;
+        this.workers = null;
+        this.syncExecutor = syncExecutor;
+    }
+
+    /**
+     * Creates an engine with its own pool of worker threads, the pool gets shut down with the engine
+     *
+     * @param workers      the amount of worker threads
+     * @param syncExecutor the executor of the owning thread, e.g. the main thread of the server
+     */
+    public AsyncCommandEngine(int workers, Executor syncExecutor)
+    {
+        if (syncExecutor == null)
+        {
+            throw new IllegalArgumentException("The executors must not be null!");
+        }
+        this.workers = Executors.newFixedThreadPool(workers, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Command Worker #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor = this.workers;
+        this.syncExecutor = syncExecutor;
+    }
+
+    /**
+     * Runs the context on the lane of its sender, the context is released once the command is done
+     *
+     * @param commandExecutor the command executor to report exceptions to
+     * @param context         the parsed context
+     *
+     * @return false if the engine is shut down or the executor rejected the command
+     */
+    public boolean submit(final CommandExecutor commandExecutor, final BaseCommandContext context)
+    {
+        synchronized (this.lock)
+        {
+            if (this.shutdown)
+            {
+                return false;
+            }
+            this.inFlight++;
+        }
+        Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    context.runAndShowResult();
+                    context.release();
+                }
+                catch (final Throwable t)
+                {
+                    // errors are reported too, so the context gets released
+                    report(commandExecutor, context, t);
+                }
+                finally
+                {
+                    done();
+                }
+            }
+        };
+        UUID id = context.getSender().getUniqueId();
+        if (id == null)
+        {
+            id = NO_ID;
+        }
+        while (true)
+        {
+            Lane lane = this.lanes.get(id);
+            if (lane == null)
+            {
+                lane = new Lane(id);
+                Lane existing = this.lanes.putIfAbsent(id, lane);
+                if (existing != null)
+                {
+                    lane = existing;
+                }
+            }
+            int result = lane.offer(task);
+            if (result == Lane.QUEUED)
+            {
+                return true;
+            }
+            if (result == Lane.REJECTED)
+            {
+                this.done();
+                return false;
+            }
+            // the lane got reclaimed in the meantime
+        }
+    }
+
+    private void report(final CommandExecutor commandExecutor, final BaseCommandContext context, final Throwable t)
+    {
+        synchronized (this.lock)
+        {
+            this.inFlight++;
+        }
+        boolean submitted = false;
+        try
+        {
+            this.syncExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        commandExecutor.handleCommandException(context.getCommand(), context, context.getSender(), t);
+                    }
+                    finally
+                    {
+                        context.release();
+                        done();
+                    }
+                }
+            });
+            submitted = true;
+        }
+        catch (RejectedExecutionException ignored)
+        {
+            // the owning thread is gone already
+        }
+        finally
+        {
+            if (!submitted)
+            {
+                context.release();
+                this.done();
+            }
+        }
+    }
+
+    private void done()
+    {
+        synchronized (this.lock)
+        {
+            if (--this.inFlight == 0)
+            {
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting commands and waits for the running ones and their exception reports to finish.
+     * Exception reports run on the sync executor, if that executor needs the calling thread
+     * pending reports can not finish and this waits until the timeout.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     *
+     * @return true if all commands finished in time
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this.lock)
+        {
+            this.shutdown = true;
+            while (this.inFlight > 0)
+            {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+            }
+        }
+        if (this.workers != null)
+        {
+            this.workers.shutdown();
+        }
+        return true;
+    }
+
+    public boolean isShutdown()
+    {
+        synchronized (this.lock)
+        {
+            return this.shutdown;
+        }
+    }
+
+    /**
+     * Returns the amount of commands and exception reports that did not finish yet
+     *
+     * @return the amount of pending tasks
+     */
+    public int getInFlight()
+    {
+        synchronized (this.lock)
+        {
+            return this.inFlight;
+        }
+    }
+
+    /**
+     * Returns the amount of senders that have commands queued or running
+     *
+     * @return the amount of active lanes
+     */
+    public int getLaneCount()
+    {
+        return this.lanes.size();
+    }
+
+    /**
+     * The serial mailbox of a sender, it is scheduled on the executor while it has commands queued
+     * and gets removed once it runs empty.
+     */
+    private final class Lane implements Runnable
+    {
+        private static final int QUEUED = 0;
+        private static final int REJECTED = 1;
+        private static final int RECLAIMED = 2;
+
+        private final UUID id;
+        private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+        private boolean scheduled = false;
+        private boolean reclaimed = false;
+
+        private Lane(UUID id)
+        {
+            this.id = id;
+        }
+
+        private synchronized int offer(Runnable task)
+        {
+            if (this.reclaimed)
+            {
+                return RECLAIMED;
+            }
+            this.queue.add(task);
+            if (!this.scheduled)
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    this.queue.remove(task);
+                    if (this.queue.isEmpty())
+                    {
+                        this.reclaim();
+                    }
+                    return REJECTED;
+                }
+                this.scheduled = true;
+            }
+            return QUEUED;
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                Runnable task;
+                synchronized (this)
+                {
+                    task = this.queue.poll();
+                }
+                boolean completed = false;
+                try
+                {
+                    if (task != null)
+                    {
+                        task.run();
+                    }
+                    completed = true;
+                }
+                finally
+                {
+                    if (!completed)
+                    {
+                        // something escaped the task, hand the lane on before it propagates
+                        this.reschedule();
+                    }
+                }
+                synchronized (this)
+                {
+                    if (this.queue.isEmpty())
+                    {
+                        this.scheduled = false;
+                        this.reclaim();
+                        return;
+                    }
+                }
+                // give the other lanes a turn before running the next command of this sender
+                try
+                {
+                    executor.execute(this);
+                    return;
+                }
+                catch (RejectedExecutionException ignored)
+                {
+                    // keep going on this thread
+                }
+            }
+        }
+
+        private synchronized void reschedule()
+        {
+            if (!this.queue.isEmpty())
+            {
+                try
+                {
+                    executor.execute(this);
+                    return;
+                }
+                catch (RejectedExecutionException ignored)
+                {
+                    // the next offer schedules the lane again
+                }
+            }
+            this.scheduled = false;
+            if (this.queue.isEmpty())
+            {
+                this.reclaim();
+            }
+        }
+
+        private void reclaim()
+        {
+            this.reclaimed = true;
+            lanes.remove(this.id, this);
+        }
+    }
+}
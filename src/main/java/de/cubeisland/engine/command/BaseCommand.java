@@ -24,11 +24,9 @@ package de.cubeisland.engine.command;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
@@ -46,15 +44,21 @@ import static de.cubeisland.engine.command.StringUtils.implode;
 public abstract class BaseCommand
 {
     private final BaseCommand parent;
-    private final Map<String, BaseCommand> children = new HashMap<String, BaseCommand>();
-    private final Map<String, AliasCommand> aliases = new HashMap<String, AliasCommand>();
+    private final SymbolMap<BaseCommand> children = new SymbolMap<BaseCommand>();
+    private final SymbolMap<AliasCommand> aliases = new SymbolMap<AliasCommand>();
     private final Stack<String> labels;
     private final String name;
     private final String description;
     private final CommandOwner owner;
-    private final ContextFactory contextFactory;
+    private volatile ContextFactory contextFactory;
+    /**
+     * Kept until the context factory got created
+     */
+    private CommandDescriptor descriptor;
     private final Class<? extends BaseCommandSender>[] restrictUsage;
     private final CommandPermission permission;
+    private final boolean asynchronous;
+    private final CommandRateLimit rateLimit;
     private boolean registered = false;
 
     private DelegatingContextFilter delegation;
@@ -67,12 +71,14 @@ public abstract class BaseCommand
         this.name = descriptor.getName();
         this.description = descriptor.getDescription();
         this.owner = descriptor.getOwner();
-        this.contextFactory = descriptor.getContextFactory();
+        this.descriptor = descriptor;
         this.restrictUsage = descriptor.getRestrictUsage();
         this.permission = descriptor.getPermission();
         this.parent = descriptor.getParent();
 
         this.delegation = descriptor.getDelegation();
+        this.asynchronous = descriptor.isAsynchronous();
+        this.rateLimit = descriptor.getRateLimit();
 
         Stack<String> labels = new Stack<String>();
         BaseCommand cmd = this;
@@ -128,7 +134,11 @@ public abstract class BaseCommand
 
     private void addAlias(AliasCommand alias)
     {
-        this.aliases.put(alias.getName(), alias);
+        this.aliases.put(SymbolTable.global().intern(alias.getName()), alias);
+        if (this.registered)
+        {
+            this.commandManager.getCommandTree().insert(alias);
+        }
     }
 
     public boolean isRestricted(BaseCommandSender sender)
@@ -147,9 +157,32 @@ public abstract class BaseCommand
         return false;
     }
 
+    /**
+     * Returns the context factory, creating it from the descriptor on first use
+     *
+     * @return the context factory
+     */
     public ContextFactory getContextFactory()
     {
-        return this.contextFactory;
+        ContextFactory factory = this.contextFactory;
+        if (factory == null)
+        {
+            synchronized (this)
+            {
+                factory = this.contextFactory;
+                if (factory == null && this.descriptor != null)
+                {
+                    factory = this.descriptor.getContextFactory();
+                    if (factory != null && this.commandManager != null)
+                    {
+                        factory.setReaders(this.commandManager.getReaders());
+                    }
+                    this.contextFactory = factory;
+                    this.descriptor = null;
+                }
+            }
+        }
+        return factory;
     }
 
     public BaseCommand getParent()
@@ -284,13 +317,34 @@ public abstract class BaseCommand
 
 
 
+    public final void addChild(BaseCommand child)
+    {
+        this.children.put(SymbolTable.global().intern(child.getName()), child);
+        if (this.registered)
+        {
+            this.commandManager.index(child);
+        }
+    }
+
     public final BaseCommand getChild(String name)
     {
         if (name == null)
         {
             return null;
         }
-        return this.children.get(name.toLowerCase(Locale.ENGLISH));
+        return this.children.get(SymbolTable.global().lookup(name));
+    }
+
+    /**
+     * Returns the child with the given symbol
+     *
+     * @param symbol the symbol id of the name
+     *
+     * @return the child or null
+     */
+    public final BaseCommand getChild(int symbol)
+    {
+        return this.children.get(symbol);
     }
 
     public final Set<BaseCommand> getChildren()
@@ -305,7 +359,7 @@ public abstract class BaseCommand
 
     public final boolean hasChild(String name)
     {
-        return name != null && this.children.containsKey(name.toLowerCase(Locale.ENGLISH));
+        return name != null && this.children.containsKey(SymbolTable.global().lookup(name));
     }
 
     /**
@@ -327,21 +381,20 @@ public abstract class BaseCommand
         {
             throw new PermissionDeniedException(command.permission);
         }
-        ArgBounds bounds = cFactory.getArgBounds();
-        if (ctx.getIndexedCount() < bounds.getMin())
+        ParsePlan plan = cFactory.getPlan();
+        ArgBounds bounds = plan.getBounds();
+        if (ctx.getRawIndexedCount() < bounds.getMin())
         {
             throw new TooFewArgumentsException();
         }
-        if (bounds.getMax() > ArgBounds.NO_MAX && ctx.getIndexedCount() > bounds.getMax())
+        if (bounds.getMax() > ArgBounds.NO_MAX && ctx.getRawIndexedCount() > bounds.getMax())
         {
             throw new TooManyArgumentsException();
         }
-        for (CommandParameterIndexed indexed : cFactory.getIndexedParameters())
-        {
-            // TODO permission for indexed
-        }
-        for (CommandParameter param : cFactory.getParameters().values())
+        // TODO permission for indexed
+        for (int slot = 0; slot < plan.getParameterCount(); slot++)
         {
+            CommandParameter param = plan.getParameter(slot);
             if (ctx.hasParam(param.getName()))
             {
                 if (!param.checkPermission(ctx.getSender()))
@@ -354,9 +407,10 @@ public abstract class BaseCommand
                 throw new MissingParameterException(param.getName());
             }
         }
-        for (CommandFlag flag : cFactory.getFlags())
+        for (int i = 0; i < plan.getFlagCount(); i++)
         {
-            if (ctx.hasFlag(flag.getName()) && !flag.checkPermission(ctx.getSender()))
+            CommandFlag flag = plan.getFlag(i);
+            if (ctx.hasFlag(flag) && !flag.checkPermission(ctx.getSender()))
             {
                 throw new PermissionDeniedException(flag.getPermission());
             }
@@ -390,6 +444,26 @@ public abstract class BaseCommand
         return delegation;
     }
 
+    /**
+     * Returns whether this command gets run by the {@link AsyncCommandEngine} of the executor
+     *
+     * @return true if the command should not run on the calling thread
+     */
+    public boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    /**
+     * Returns how often a sender may use this command
+     *
+     * @return the limit or null
+     */
+    public CommandRateLimit getRateLimit()
+    {
+        return rateLimit;
+    }
+
     public void delegate(DelegatingContextFilter delegation)
     {
         this.delegation = delegation;
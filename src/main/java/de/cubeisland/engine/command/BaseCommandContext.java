@@ -22,43 +22,310 @@
  */
 package de.cubeisland.engine.command;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
 
 import de.cubeisland.engine.command.reader.ArgumentReader;
+import de.cubeisland.engine.command.reader.BatchArgumentReader;
+import de.cubeisland.engine.command.reader.CompositeReader;
+import de.cubeisland.engine.command.reader.DoubleArgumentReader;
+import de.cubeisland.engine.command.reader.IntArgumentReader;
+import de.cubeisland.engine.command.reader.LongArgumentReader;
 import de.cubeisland.engine.command.exception.InvalidArgumentException;
 import de.cubeisland.engine.command.exception.PermissionDeniedException;
 
-import static java.util.Locale.ENGLISH;
-
 public class BaseCommandContext
 {
-    final Type last;
-    private final BaseCommand command;
-    private final BaseCommandSender sender;
-    private final Stack<String> labels;
-    private final List<String> rawIndexed;
-    private final Set<String> flags;
-    private final Map<String, String> rawNamed;
-    private List<Object> indexed = null;
-    private Map<String, Object> named = null;
-
-    public BaseCommandContext(BaseCommand command, BaseCommandSender sender, Stack<String> labels,
-                              List<String> rawIndexed, Set<String> flags, Map<String, String> rawNamed, Type last)
+    private static final int[] NO_TOKENS = new int[0];
+    private static final Object[] NO_VALUES = new Object[0];
+    /**
+     * Marks an argument that has not been converted yet
+     */
+    private static final Object UNREAD = new Object();
+    /**
+     * Marks an argument its batch reader could not read, it is read alone to report the error
+     */
+    private static final Object BATCH_FAILED = new Object();
+    /**
+     * Mark arguments whose value is held in a primitive slot
+     */
+    private static final Object INT_VALUE = new Object();
+    private static final Object LONG_VALUE = new Object();
+    private static final Object DOUBLE_VALUE = new Object();
+    private static final long[] NO_PRIMITIVES = new long[0];
+
+    Type last = Type.NOTHING;
+    private BaseCommand command;
+    private BaseCommandSender sender;
+    private Stack<String> labels;
+    private CommandLine args;
+    private ParsePlan plan;
+    private int[] rawIndexed = NO_TOKENS;
+    private int indexedCount = 0;
+    /**
+     * The first 64 flags of the plan, further flags go to moreFlags
+     */
+    private long flags = 0L;
+    private BitSet moreFlags = null;
+    /**
+     * The token of each named parameter by slot or -1
+     */
+    private int[] rawNamed = NO_TOKENS;
+    private int lastNamed = -1;
+    /**
+     * The converted values by position and by slot, they get converted on first access
+     */
+    private Object[] indexed = NO_VALUES;
+    private Object[] named = NO_VALUES;
+    /**
+     * The primitive values by position and by slot, doubles are stored as their raw long bits
+     */
+    private long[] indexedPrimitives = NO_PRIMITIVES;
+    private long[] namedPrimitives = NO_PRIMITIVES;
+
+    /**
+     * the arena a pooled context came from and goes back to, null if the context is not pooled
+     */
+    private final ParseArena arena;
+    private boolean released = false;
+    /**
+     * links the contexts that got released on another thread than the one of their arena
+     */
+    BaseCommandContext nextReturned;
+
+    public BaseCommandContext(BaseCommand command, BaseCommandSender sender, Stack<String> labels, CommandLine args)
+    {
+        this(null);
+        this.init(command, sender, labels, args, command.getContextFactory().getPlan());
+    }
+
+    BaseCommandContext(ParseArena arena)
+    {
+        this.arena = arena;
+    }
+
+    final void init(BaseCommand command, BaseCommandSender sender, Stack<String> labels, CommandLine args,
+                    ParsePlan plan)
     {
         this.command = command;
         this.sender = sender;
         this.labels = labels;
-        this.rawIndexed = rawIndexed;
-        this.flags = flags;
-        this.rawNamed = rawNamed;
-        this.last = last;
+        this.args = args;
+        this.plan = plan;
+        this.last = Type.NOTHING;
+        this.released = false;
+        this.indexedCount = 0;
+        this.flags = 0L;
+        if (this.moreFlags != null)
+        {
+            this.moreFlags.clear();
+        }
+        this.lastNamed = -1;
+        if (this.rawIndexed.length < args.size())
+        {
+            this.rawIndexed = new int[args.size()];
+            this.indexed = new Object[args.size()];
+            this.indexedPrimitives = new long[args.size()];
+        }
+        final int paramCount = plan.getParameterCount();
+        if (this.rawNamed.length < paramCount)
+        {
+            this.rawNamed = new int[paramCount];
+            this.named = new Object[paramCount];
+            this.namedPrimitives = new long[paramCount];
+        }
+        Arrays.fill(this.rawNamed, 0, paramCount, -1);
+        Arrays.fill(this.named, 0, paramCount, null);
+    }
+
+    /**
+     * Hands a pooled context back to the {@link ParseArena} it came from, which may belong to another thread.
+     * Contexts that are not pooled are left untouched.
+     */
+    final void release()
+    {
+        if (this.arena == null || this.released)
+        {
+            return;
+        }
+        this.last = Type.NOTHING;
+        this.command = null;
+        this.sender = null;
+        this.labels = null;
+        this.args = null;
+        this.indexedCount = 0;
+        this.flags = 0L;
+        if (this.moreFlags != null)
+        {
+            this.moreFlags.clear();
+        }
+        this.lastNamed = -1;
+        Arrays.fill(this.indexed, null);
+        Arrays.fill(this.named, null);
+        this.released = true;
+        this.arena.free(this);
+    }
+
+    /**
+     * Moves this context onto a line that extends the one it got parsed from.
+     * The parse state is kept so parsing can resume from a {@link Checkpoint}.
+     */
+    final void rebase(CommandLine args)
+    {
+        this.ensureLive();
+        if (this.rawIndexed.length < args.size())
+        {
+            int[] rawIndexed = new int[args.size()];
+            System.arraycopy(this.rawIndexed, 0, rawIndexed, 0, this.indexedCount);
+            this.rawIndexed = rawIndexed;
+            Object[] indexed = new Object[args.size()];
+            System.arraycopy(this.indexed, 0, indexed, 0, this.indexedCount);
+            this.indexed = indexed;
+            long[] indexedPrimitives = new long[args.size()];
+            System.arraycopy(this.indexedPrimitives, 0, indexedPrimitives, 0, this.indexedCount);
+            this.indexedPrimitives = indexedPrimitives;
+        }
+        this.args = args;
+    }
+
+    /**
+     * Binds this context to another command whose plan splits up the tokens the same way.
+     * The raw arguments are kept, only their converted values are dropped.
+     */
+    final void rebind(BaseCommand command, ParsePlan plan)
+    {
+        this.ensureLive();
+        this.command = command;
+        this.plan = plan;
+        Arrays.fill(this.indexed, 0, this.indexedCount, UNREAD);
+    }
+
+    final void save(Checkpoint checkpoint, int token)
+    {
+        checkpoint.token = token;
+        checkpoint.last = this.last;
+        checkpoint.indexedCount = this.indexedCount;
+        checkpoint.flags = this.flags;
+        checkpoint.moreFlags = this.moreFlags == null ? null : (BitSet)this.moreFlags.clone();
+        checkpoint.lastNamed = this.lastNamed;
+        final int paramCount = this.plan.getParameterCount();
+        if (checkpoint.rawNamed.length < paramCount)
+        {
+            checkpoint.rawNamed = new int[paramCount];
+        }
+        System.arraycopy(this.rawNamed, 0, checkpoint.rawNamed, 0, paramCount);
+    }
+
+    final void restore(Checkpoint checkpoint)
+    {
+        this.last = checkpoint.last;
+        this.indexedCount = checkpoint.indexedCount;
+        this.flags = checkpoint.flags;
+        this.moreFlags = checkpoint.moreFlags == null ? null : (BitSet)checkpoint.moreFlags.clone();
+        this.lastNamed = checkpoint.lastNamed;
+        final int paramCount = this.plan.getParameterCount();
+        System.arraycopy(checkpoint.rawNamed, 0, this.rawNamed, 0, paramCount);
+        for (int slot = 0; slot < paramCount; slot++)
+        {
+            this.named[slot] = this.rawNamed[slot] == -1 ? null : UNREAD;
+        }
+    }
+
+    /**
+     * The parse state of a context right before a token got read
+     */
+    static final class Checkpoint
+    {
+        int token = 0;
+        private Type last = Type.NOTHING;
+        private int indexedCount = 0;
+        private long flags = 0L;
+        private BitSet moreFlags = null;
+        private int lastNamed = -1;
+        private int[] rawNamed = NO_TOKENS;
+    }
+
+    private void ensureLive()
+    {
+        if (this.released)
+        {
+            throw new IllegalStateException("This context has been released and must not be used anymore!");
+        }
+    }
+
+    public boolean isPooled()
+    {
+        return this.arena != null;
+    }
+
+    void addRawIndexed(int token)
+    {
+        this.indexed[this.indexedCount] = UNREAD;
+        this.rawIndexed[this.indexedCount++] = token;
+    }
+
+    void addFlag(int index)
+    {
+        if (index < 64)
+        {
+            this.flags |= 1L << index;
+        }
+        else
+        {
+            if (this.moreFlags == null)
+            {
+                this.moreFlags = new BitSet();
+            }
+            this.moreFlags.set(index - 64);
+        }
+    }
+
+    private boolean hasFlag(int index)
+    {
+        if (index < 0)
+        {
+            return false;
+        }
+        if (index < 64)
+        {
+            return (this.flags & (1L << index)) != 0;
+        }
+        return this.moreFlags != null && this.moreFlags.get(index - 64);
+    }
+
+    void putRawNamed(int slot, int token)
+    {
+        this.rawNamed[slot] = token;
+        this.named[slot] = UNREAD;
+        this.lastNamed = slot;
+    }
+
+    private int getNamedSlot(String name)
+    {
+        return this.plan.getParameterSlot(name);
+    }
+
+    ParsePlan getPlan()
+    {
+        return this.plan;
+    }
+
+    /**
+     * Returns the tokenized arguments this context got parsed from
+     */
+    public CommandLine getArgs()
+    {
+        this.ensureLive();
+        return this.args;
     }
 
     /**
@@ -68,6 +335,7 @@ public class BaseCommandContext
      */
     public BaseCommand getCommand()
     {
+        this.ensureLive();
         return this.command;
     }
 
@@ -80,7 +348,7 @@ public class BaseCommandContext
      */
     public boolean isSender(Class<? extends BaseCommandSender> type)
     {
-        return type.isAssignableFrom(this.sender.getClass());
+        return type.isAssignableFrom(this.getSender().getClass());
     }
 
     /**
@@ -90,6 +358,7 @@ public class BaseCommandContext
      */
     public BaseCommandSender getSender()
     {
+        this.ensureLive();
         return this.sender;
     }
 
@@ -100,6 +369,7 @@ public class BaseCommandContext
      */
     public String getLabel()
     {
+        this.ensureLive();
         return this.labels.peek();
     }
 
@@ -110,6 +380,7 @@ public class BaseCommandContext
      */
     public Stack<String> getLabels()
     {
+        this.ensureLive();
         Stack<String> newStack = new Stack<String>();
         newStack.addAll(this.labels);
         return newStack;
@@ -137,11 +408,31 @@ public class BaseCommandContext
     }
 
     /**
-     * Returns the amount of indexed parameters
+     * Returns the amount of complete indexed values, a composite value counts as one
      */
     public int getIndexedCount()
     {
-        return this.rawIndexed.size();
+        this.ensureLive();
+        if (this.indexedCount == 0)
+        {
+            return 0;
+        }
+        int last = this.plan.getIndexedIndex(this.indexedCount - 1);
+        if (last == -1)
+        {
+            // more tokens than parameters
+            return this.plan.getIndexedCount();
+        }
+        return this.positionOf(last) == -1 ? last : last + 1;
+    }
+
+    /**
+     * Returns the amount of raw indexed tokens, the tokens of a composite value are counted separately
+     */
+    public int getRawIndexedCount()
+    {
+        this.ensureLive();
+        return this.indexedCount;
     }
 
     /**
@@ -149,17 +440,25 @@ public class BaseCommandContext
      */
     public List<Object> getIndexed()
     {
-        return new ArrayList<Object>(this.indexed);
+        this.ensureLive();
+        List<Object> indexed = new ArrayList<Object>(this.indexedCount);
+        int position;
+        for (int i = 0; (position = this.positionOf(i)) != -1; i++)
+        {
+            indexed.add(this.readIndexed(position));
+        }
+        return indexed;
     }
 
     /**
-     * Checks whether the given index is available in the indexed list
+     * Checks whether the indexed value of the given index is given
      *
-     * @param i the index to check
+     * @param i the index to check, a composite value counts as one
      */
     public boolean hasArg(int i)
     {
-        return i >= 0 && i < getIndexedCount();
+        this.ensureLive();
+        return this.positionOf(i) != -1;
     }
 
     /**
@@ -187,27 +486,26 @@ public class BaseCommandContext
     /**
      * * The method returns a arg as a specific type
      *
-     * @param index the index
+     * @param index the index, a composite value counts as one
      *
      * @return the converted arg value
      */
     @SuppressWarnings("unchecked")
     public <T> T getIndexed(int index)
     {
-        try
-        {
-            return (T)this.indexed.get(index);
-        }
-        catch (IndexOutOfBoundsException e)
+        this.ensureLive();
+        int position = this.positionOf(index);
+        if (position == -1)
         {
             return null;
         }
+        return (T)this.readIndexed(position);
     }
 
     /**
-     * This method aggregates all string from the given index
+     * This method aggregates all raw tokens from the given index
      *
-     * @param from the index to start from
+     * @param from the index of the value to start from, a composite value counts as one
      *
      * @return the aggregated string
      */
@@ -217,17 +515,25 @@ public class BaseCommandContext
         {
             return null;
         }
-        StringBuilder sb = new StringBuilder(this.<String>getIndexed(from));
-        while (this.hasArg(++from))
+        int position = this.positionOf(from);
+        StringBuilder sb = new StringBuilder(this.args.getString(this.rawIndexed[position]));
+        while (++position < this.indexedCount)
         {
-            sb.append(" ").append(this.getIndexed(from));
+            sb.append(" ").append(this.args.getString(this.rawIndexed[position]));
         }
         return sb.toString();
     }
 
+    public boolean hasFlag(CommandFlag flag)
+    {
+        this.ensureLive();
+        return this.hasFlag(this.plan.getFlagIndex(flag));
+    }
+
     public boolean hasFlag(String name)
     {
-        return this.flags.contains(name.toLowerCase(ENGLISH));
+        this.ensureLive();
+        return this.hasFlag(this.plan.getFlagIndexBySymbol(SymbolTable.global().lookup(name)));
     }
 
     public boolean hasFlags(String... names)
@@ -242,25 +548,55 @@ public class BaseCommandContext
         return true;
     }
 
+    /**
+     * Returns the names of all flags that have been set.
+     * Prefer {@link #hasFlag(CommandFlag)} which does not allocate.
+     */
     public Set<String> getFlags()
     {
-        return new HashSet<String>(this.flags);
+        this.ensureLive();
+        Set<String> flags = new HashSet<String>();
+        for (int i = 0; i < this.plan.getFlagCount(); i++)
+        {
+            if (this.hasFlag(i))
+            {
+                flags.add(this.plan.getFlag(i).getName());
+            }
+        }
+        return flags;
     }
 
     public LinkedHashMap<String, Object> getParams()
     {
-        return new LinkedHashMap<String, Object>(this.named);
+        this.ensureLive();
+        LinkedHashMap<String, Object> params = new LinkedHashMap<String, Object>();
+        for (int slot = 0; slot < this.plan.getParameterCount(); slot++)
+        {
+            if (this.rawNamed[slot] != -1)
+            {
+                params.put(this.plan.getParameter(slot).getName(), this.readNamed(slot));
+            }
+        }
+        return params;
     }
 
     public boolean hasParam(String name)
     {
-        return this.rawNamed.containsKey(name.toLowerCase(ENGLISH));
+        this.ensureLive();
+        int slot = this.getNamedSlot(name);
+        return slot != -1 && this.rawNamed[slot] != -1;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getParam(String name)
     {
-        return (T)this.named.get(name.toLowerCase(ENGLISH));
+        this.ensureLive();
+        int slot = this.getNamedSlot(name);
+        if (slot == -1 || this.rawNamed[slot] == -1)
+        {
+            return null;
+        }
+        return (T)this.readNamed(slot);
     }
 
     public <T> T getParam(String name, T def)
@@ -279,9 +615,170 @@ public class BaseCommandContext
         return def;
     }
 
+    /**
+     * Returns the arg at the given index as a int without boxing it if its reader supports it
+     *
+     * @param index the index
+     *
+     * @return the value or 0 if not given
+     *
+     * @throws ClassCastException  if the value is not a number
+     * @throws ArithmeticException if the value is not integral or out of the int range
+     */
+    public int getInt(int index)
+    {
+        return this.getInt(index, 0);
+    }
+
+    public int getInt(int index, int def)
+    {
+        this.ensureLive();
+        int position = this.positionOf(index);
+        if (position == -1)
+        {
+            return def;
+        }
+        Object value = this.readIndexedPrimitive(position);
+        if (value == null)
+        {
+            return def;
+        }
+        return toInt(value, this.indexedPrimitives[position]);
+    }
+
+    public int getInt(String name)
+    {
+        return this.getInt(name, 0);
+    }
+
+    public int getInt(String name, int def)
+    {
+        this.ensureLive();
+        int slot = this.getNamedSlot(name);
+        if (slot == -1 || this.rawNamed[slot] == -1)
+        {
+            return def;
+        }
+        Object value = this.readNamedPrimitive(slot);
+        if (value == null)
+        {
+            return def;
+        }
+        return toInt(value, this.namedPrimitives[slot]);
+    }
+
+    /**
+     * Returns the arg at the given index as a long without boxing it if its reader supports it
+     *
+     * @param index the index
+     *
+     * @return the value or 0 if not given
+     *
+     * @throws ClassCastException  if the value is not a number
+     * @throws ArithmeticException if the value is not integral or out of the long range
+     */
+    public long getLong(int index)
+    {
+        return this.getLong(index, 0);
+    }
+
+    public long getLong(int index, long def)
+    {
+        this.ensureLive();
+        int position = this.positionOf(index);
+        if (position == -1)
+        {
+            return def;
+        }
+        Object value = this.readIndexedPrimitive(position);
+        if (value == null)
+        {
+            return def;
+        }
+        return toLong(value, this.indexedPrimitives[position]);
+    }
+
+    public long getLong(String name)
+    {
+        return this.getLong(name, 0);
+    }
+
+    public long getLong(String name, long def)
+    {
+        this.ensureLive();
+        int slot = this.getNamedSlot(name);
+        if (slot == -1 || this.rawNamed[slot] == -1)
+        {
+            return def;
+        }
+        Object value = this.readNamedPrimitive(slot);
+        if (value == null)
+        {
+            return def;
+        }
+        return toLong(value, this.namedPrimitives[slot]);
+    }
+
+    /**
+     * Returns the arg at the given index as a double without boxing it if its reader supports it
+     *
+     * @param index the index
+     *
+     * @return the value or 0 if not given
+     *
+     * @throws ClassCastException if the value is not a number
+     */
+    public double getDouble(int index)
+    {
+        return this.getDouble(index, 0);
+    }
+
+    public double getDouble(int index, double def)
+    {
+        this.ensureLive();
+        int position = this.positionOf(index);
+        if (position == -1)
+        {
+            return def;
+        }
+        Object value = this.readIndexedPrimitive(position);
+        if (value == null)
+        {
+            return def;
+        }
+        return toDouble(value, this.indexedPrimitives[position]);
+    }
+
+    public double getDouble(String name)
+    {
+        return this.getDouble(name, 0);
+    }
+
+    public double getDouble(String name, double def)
+    {
+        this.ensureLive();
+        int slot = this.getNamedSlot(name);
+        if (slot == -1 || this.rawNamed[slot] == -1)
+        {
+            return def;
+        }
+        Object value = this.readNamedPrimitive(slot);
+        if (value == null)
+        {
+            return def;
+        }
+        return toDouble(value, this.namedPrimitives[slot]);
+    }
+
     public String getString(String name)
     {
-        return this.rawNamed.get(name);
+        this.ensureLive();
+        int slot = this.getNamedSlot(name);
+        if (slot == -1 || this.rawNamed[slot] == -1)
+        {
+            return null;
+        }
+        return this.args.getString(this.rawNamed[slot]);
     }
 
     public String getString(String name, String def)
@@ -300,9 +797,21 @@ public class BaseCommandContext
         return def;
     }
 
+    /**
+     * Returns the raw indexed token at the given position, the tokens of a composite value are returned separately
+     *
+     * @param index the position of the token
+     *
+     * @return the token
+     */
     public String getString(int index)
     {
-        return this.rawIndexed.get(index);
+        this.ensureLive();
+        if (index < 0 || index >= this.indexedCount)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.indexedCount);
+        }
+        return this.args.getString(this.rawIndexed[index]);
     }
 
     public String getString(int index, String def)
@@ -330,80 +839,411 @@ public class BaseCommandContext
         }
     }
 
-    private List<Object> readIndexed(BaseCommandSender sender)
+    /**
+     * Returns the position of the first token of an indexed value if all of its tokens are given
+     *
+     * @param index the index of the value
+     *
+     * @return the position or -1
+     */
+    private int positionOf(int index)
     {
-        List<CommandParameterIndexed> iParams = this.command.getContextFactory().getIndexedParameters();
-        List<Object> result = new ArrayList<Object>();
-        int i = 0;
-        if (rawIndexed.get(rawIndexed.size() - 1).isEmpty())
+        int position = this.plan.getIndexedPosition(index);
+        if (position == -1 || position >= this.indexedCount
+            || position + this.plan.getIndexedArity(this.plan.getIndexedSlot(position)) > this.indexedCount)
         {
-            rawIndexed.remove(rawIndexed.size() - 1);
+            return -1;
         }
-        for (String rInd : rawIndexed)
+        return position;
+    }
+
+    private Object readIndexed(int position)
+    {
+        Object value = this.indexed[position];
+        if (value == UNREAD || value == BATCH_FAILED)
         {
-            CommandParameterIndexed pIndexed = iParams.get(i++);
-            InvalidArgumentException e = null;
-            for (Class<?> type : pIndexed.getType())
+            ArgumentReader[] readers = plan.getIndexedReaders(plan.getIndexedSlot(position));
+            if (value == UNREAD && readers.length == 1 && readers[0] instanceof BatchArgumentReader)
             {
-                try
+                this.readBatch(readers[0]);
+                value = this.indexed[position];
+                if (value != UNREAD && value != BATCH_FAILED)
                 {
-                    result.add(ArgumentReader.read(type, rInd, sender));
-                    e = null;
-                    break;
+                    return value;
                 }
-                catch (InvalidArgumentException ex)
+            }
+            value = this.convertIndexed(position);
+            this.indexed[position] = value;
+        }
+        return box(value, this.indexedPrimitives[position]);
+    }
+
+    private Object readIndexedPrimitive(int position)
+    {
+        Object value = this.indexed[position];
+        if (value == UNREAD || value == BATCH_FAILED)
+        {
+            ArgumentReader[] readers = plan.getIndexedReaders(plan.getIndexedSlot(position));
+            if (readers.length != 1 || readers[0] instanceof CompositeReader || readers[0] instanceof BatchArgumentReader)
+            {
+                return this.readIndexed(position);
+            }
+            try
+            {
+                value = this.readPrimitive(readers[0], rawIndexed[position], this.indexedPrimitives, position);
+            }
+            catch (InvalidArgumentException ex)
+            {
+                ex.setPosition(plan.getIndexedIndex(position) + 1);
+                ex.setInput(args.getString(rawIndexed[position]));
+                throw ex;
+            }
+            this.indexed[position] = value;
+        }
+        return value;
+    }
+
+    private Object convertIndexed(int position)
+    {
+        ArgumentReader[] readers = plan.getIndexedReaders(plan.getIndexedSlot(position));
+        if (readers[0] instanceof CompositeReader)
+        {
+            CompositeReader reader = (CompositeReader)readers[0];
+            try
+            {
+                // readers only get a copy of their own tokens
+                int[] tokens = Arrays.copyOfRange(rawIndexed, position, position + reader.getArity());
+                return reader.read(args, tokens, 0, sender.getLocale());
+            }
+            catch (InvalidArgumentException ex)
+            {
+                ex.setPosition(plan.getIndexedIndex(position) + 1);
+                StringBuilder input = new StringBuilder(args.getString(rawIndexed[position]));
+                for (int i = 1; i < reader.getArity(); i++)
                 {
-                    e = ex;
+                    input.append(' ').append(args.getString(rawIndexed[position + i]));
                 }
+                ex.setInput(input.toString());
+                throw ex;
             }
-            if (e != null)
+        }
+        final int token = rawIndexed[position];
+        final CharSequence source = this.sourceOf(token);
+        final int start = this.startOf(token);
+        final int end = this.endOf(token);
+        Locale locale = sender.getLocale();
+        for (int i = 0; i < readers.length - 1; i++)
+        {
+            Object value = readers[i].tryRead(source, start, end, locale);
+            if (value != ArgumentReader.FAILED)
             {
-                e.setPosition(i);
-                throw e;
+                return value;
             }
         }
-        return result;
+        // only the last type reports its error
+        try
+        {
+            return readers[readers.length - 1].read(source, start, end, locale);
+        }
+        catch (InvalidArgumentException ex)
+        {
+            ex.setPosition(plan.getIndexedIndex(position) + 1);
+            ex.setInput(args.getString(token));
+            throw ex;
+        }
     }
 
-
-    private Map<String, Object> readNamed(BaseCommandSender sender)
+    private Object readNamed(int slot)
     {
-        LinkedHashMap<String, CommandParameter> nParams = this.command.getContextFactory().getParameters();
-        Map<String, Object> readParams = new LinkedHashMap<String, Object>();
+        return box(this.readNamedPrimitive(slot), this.namedPrimitives[slot]);
+    }
 
-        for (Entry<String, String> entry : rawNamed.entrySet())
+    private Object readNamedPrimitive(int slot)
+    {
+        Object value = this.named[slot];
+        if (value == UNREAD || value == BATCH_FAILED)
         {
-            CommandParameter param = nParams.get(entry.getKey());
+            ArgumentReader reader = plan.getParameterReader(slot);
+            if (value == UNREAD && reader instanceof BatchArgumentReader)
+            {
+                this.readBatch(reader);
+                value = this.named[slot];
+                if (value != UNREAD && value != BATCH_FAILED)
+                {
+                    return value;
+                }
+            }
             try
             {
-                readParams.put(entry.getKey(), ArgumentReader.read(param.getType(), entry.getValue(), sender));
+                value = this.readPrimitive(reader, rawNamed[slot], this.namedPrimitives, slot);
             }
             catch (InvalidArgumentException ex)
             {
-                ex.setPosition(param.getName());
+                ex.setPosition(plan.getParameter(slot).getName());
+                ex.setInput(args.getString(rawNamed[slot]));
                 throw ex;
             }
+            this.named[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Reads all unread indexed and named args of the given reader at once.
+     * Args the reader could not read are marked, so they are only read alone instead of being batched again.
+     *
+     * @param reader a {@link BatchArgumentReader}
+     */
+    private void readBatch(ArgumentReader reader)
+    {
+        int[] positions = new int[this.indexedCount];
+        int indexedTargets = 0;
+        int position;
+        for (int i = 0; (position = this.positionOf(i)) != -1; i++)
+        {
+            ArgumentReader[] readers = plan.getIndexedReaders(plan.getIndexedSlot(position));
+            if (this.indexed[position] == UNREAD && readers.length == 1 && readers[0] == reader)
+            {
+                positions[indexedTargets++] = position;
+            }
+        }
+        int[] slots = new int[plan.getParameterCount()];
+        int namedTargets = 0;
+        for (int slot = 0; slot < slots.length; slot++)
+        {
+            if (this.rawNamed[slot] != -1 && this.named[slot] == UNREAD && plan.getParameterReader(slot) == reader)
+            {
+                slots[namedTargets++] = slot;
+            }
+        }
+
+        String[] rawValues = new String[indexedTargets + namedTargets];
+        for (int i = 0; i < indexedTargets; i++)
+        {
+            rawValues[i] = args.getString(rawIndexed[positions[i]]);
+        }
+        for (int i = 0; i < namedTargets; i++)
+        {
+            rawValues[indexedTargets + i] = args.getString(rawNamed[slots[i]]);
+        }
+        Object[] values = new Object[rawValues.length];
+        Arrays.fill(values, ArgumentReader.FAILED);
+        ((BatchArgumentReader)reader).readAll(rawValues, values, sender.getLocale());
+
+        for (int i = 0; i < indexedTargets; i++)
+        {
+            Object value = values[i];
+            this.indexed[positions[i]] = value == ArgumentReader.FAILED ? BATCH_FAILED : value;
+        }
+        for (int i = 0; i < namedTargets; i++)
+        {
+            Object value = values[indexedTargets + i];
+            this.named[slots[i]] = value == ArgumentReader.FAILED ? BATCH_FAILED : value;
+        }
+    }
+
+    /**
+     * Reads the arg into the given primitive slot if the reader supports it
+     *
+     * @return the marker of the primitive slot or the boxed value
+     */
+    private Object readPrimitive(ArgumentReader reader, int token, long[] primitives, int slot)
+    {
+        final CharSequence source = this.sourceOf(token);
+        final int start = this.startOf(token);
+        final int end = this.endOf(token);
+        Locale locale = sender.getLocale();
+        if (reader instanceof IntArgumentReader)
+        {
+            primitives[slot] = ((IntArgumentReader)reader).readInt(source, start, end, locale);
+            return INT_VALUE;
+        }
+        if (reader instanceof LongArgumentReader)
+        {
+            primitives[slot] = ((LongArgumentReader)reader).readLong(source, start, end, locale);
+            return LONG_VALUE;
+        }
+        if (reader instanceof DoubleArgumentReader)
+        {
+            primitives[slot] = Double.doubleToRawLongBits(((DoubleArgumentReader)reader).readDouble(source, start, end, locale));
+            return DOUBLE_VALUE;
+        }
+        return reader.read(source, start, end, locale);
+    }
+
+    /**
+     * Returns the chars a token is read from.
+     * Tokens are read from the line in place, only escaped tokens have to be resolved first.
+     */
+    private CharSequence sourceOf(int token)
+    {
+        return args.isEscaped(token) ? args.getString(token) : args.getSource();
+    }
+
+    private int startOf(int token)
+    {
+        return args.isEscaped(token) ? 0 : args.getStart(token);
+    }
+
+    private int endOf(int token)
+    {
+        return args.isEscaped(token) ? args.getString(token).length() : args.getEnd(token);
+    }
+
+    private static Object box(Object value, long primitive)
+    {
+        if (value == INT_VALUE)
+        {
+            return (int)primitive;
+        }
+        if (value == LONG_VALUE)
+        {
+            return primitive;
+        }
+        if (value == DOUBLE_VALUE)
+        {
+            return Double.longBitsToDouble(primitive);
+        }
+        return value;
+    }
+
+    private static int toInt(Object value, long primitive)
+    {
+        long l = toLong(value, primitive);
+        if ((int)l != l)
+        {
+            throw new ArithmeticException(l + " is out of the int range");
+        }
+        return (int)l;
+    }
+
+    /**
+     * Converts the value without truncating it, decimal values are only accepted if they are integral
+     */
+    private static long toLong(Object value, long primitive)
+    {
+        if (value == INT_VALUE || value == LONG_VALUE)
+        {
+            return primitive;
+        }
+        double d;
+        if (value == DOUBLE_VALUE)
+        {
+            d = Double.longBitsToDouble(primitive);
+        }
+        else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+        {
+            return ((Number)value).longValue();
+        }
+        else
+        {
+            d = ((Number)value).doubleValue();
+        }
+        long l = (long)d;
+        // 2^63 is the first double above the long range
+        if (l != d || d >= 0x1p63)
+        {
+            throw new ArithmeticException(d + " is not an integral long");
+        }
+        return l;
+    }
+
+    private static double toDouble(Object value, long primitive)
+    {
+        if (value == INT_VALUE || value == LONG_VALUE)
+        {
+            return primitive;
+        }
+        if (value == DOUBLE_VALUE)
+        {
+            return Double.longBitsToDouble(primitive);
+        }
+        return ((Number)value).doubleValue();
+    }
+
+    /**
+     * Converts all arguments at once instead of on first access.
+     * This is done before running the command if the {@link ContextFactory} is eager.
+     *
+     * @throws InvalidArgumentException if an argument could not be read
+     */
+    public void convertAll() throws InvalidArgumentException
+    {
+        this.ensureLive();
+        int position;
+        for (int i = 0; (position = this.positionOf(i)) != -1; i++)
+        {
+            this.readIndexed(position);
+        }
+        for (int slot = 0; slot < this.plan.getParameterCount(); slot++)
+        {
+            if (this.rawNamed[slot] != -1)
+            {
+                this.readNamed(slot);
+            }
         }
-        return readParams;
     }
 
     public Map<String, String> getRawNamed()
     {
+        this.ensureLive();
+        Map<String, String> rawNamed = new LinkedHashMap<String, String>();
+        for (int slot = 0; slot < this.plan.getParameterCount(); slot++)
+        {
+            if (this.rawNamed[slot] != -1 && slot != this.lastNamed)
+            {
+                rawNamed.put(this.plan.getParameter(slot).getName(), this.args.getString(this.rawNamed[slot]));
+            }
+        }
+        if (this.lastNamed != -1)
+        {
+            // the last read param stays last for tab-completion
+            rawNamed.put(this.plan.getParameter(this.lastNamed).getName(),
+                         this.args.getString(this.rawNamed[this.lastNamed]));
+        }
         return rawNamed;
     }
 
+    /**
+     * Returns a view on the raw indexed parameters, the Strings are created on access
+     */
     public List<String> getRawIndexed()
     {
-        return this.rawIndexed;
+        this.ensureLive();
+        return new AbstractList<String>()
+        {
+            @Override
+            public String get(int index)
+            {
+                return getString(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return indexedCount;
+            }
+        };
     }
 
 
     protected void runAndShowResult()
     {
-        this.indexed = this.readIndexed(this.sender);
-        this.named = this.readNamed(this.sender);
+        this.ensureLive();
+        if (indexedCount > 0)
+        {
+            int lastToken = rawIndexed[indexedCount - 1];
+            if (args.getLength(lastToken) == 0 && !args.isQuoted(lastToken))
+            {
+                indexedCount--; // ignore the trailing empty arg
+            }
+        }
 
         this.command.checkContext(this);
+        if (this.command.getContextFactory().isEager())
+        {
+            this.convertAll();
+        }
         CommandResult result = this.command.run(this);
         if (result != null)
         {
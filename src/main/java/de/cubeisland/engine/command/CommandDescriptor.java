@@ -32,6 +32,8 @@ public interface CommandDescriptor
     CommandOwner getOwner();
     Class<? extends BaseCommandSender>[] getRestrictUsage();
     BaseCommand getParent();
+    boolean isAsynchronous();
+    CommandRateLimit getRateLimit();
 
     DelegatingContextFilter getDelegation();
 }
@@ -23,25 +23,73 @@
 package de.cubeisland.engine.command;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.Stack;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import de.cubeisland.engine.command.exception.RateLimitedException;
 
 import static de.cubeisland.engine.command.StringUtils.startsWithIgnoreCase;
 
 public abstract class CommandExecutor
 {
+    private static final UUID NO_ID = new UUID(0L, 0L);
+
+    private final ConcurrentMap<UUID, CompletionSession> completionSessions = new ConcurrentHashMap<UUID, CompletionSession>();
+    private long completionSessionTimeout = TimeUnit.SECONDS.toMillis(30);
+    private volatile AsyncCommandEngine asyncEngine = null;
+    private final RateLimiter rateLimiter = new RateLimiter();
+
     public boolean onCommand(BaseCommand cmd, BaseCommandSender sender, String label, String[] args)
+    {
+        return this.admit(cmd, sender) && this.execute(cmd, sender, label, CommandLine.of(args));
+    }
+
+    public boolean onCommand(BaseCommand cmd, BaseCommandSender sender, String label, CommandLine args)
+    {
+        return this.admit(cmd, sender) && this.execute(cmd, sender, label, args);
+    }
+
+    /**
+     * Checks the rate limits of the sender, the owner and the command before anything gets parsed.
+     * The limits of a command apply to its subcommands too.
+     *
+     * @return false if the call got rejected and reported
+     */
+    final boolean admit(BaseCommand cmd, BaseCommandSender sender)
+    {
+        long wait = this.rateLimiter.acquire(sender, cmd);
+        if (wait > 0)
+        {
+            this.handleCommandException(cmd, null, sender, new RateLimitedException(wait));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Executes an admitted command call
+     */
+    final boolean execute(BaseCommand cmd, BaseCommandSender sender, String label, CommandLine args)
     {
         BaseCommandContext ctx = null;
         try
         {
-            ctx = toCommandContext(cmd, sender, label, args, false);
+            ctx = this.toCommandContext(cmd, sender, label, args, false);
 
-            // TODO async cmds
+            AsyncCommandEngine engine = this.asyncEngine;
+            if (engine != null && ctx.getCommand().isAsynchronous() && engine.submit(this, ctx))
+            {
+                ctx = null; // the engine releases the context
+                return true;
+            }
 
             // sync call:
             ctx.runAndShowResult();
@@ -52,34 +100,188 @@ public abstract class CommandExecutor
             this.handleCommandException(ctx == null ? cmd : ctx.getCommand(), ctx, sender, e);
             return false;
         }
+        finally
+        {
+            if (ctx != null)
+            {
+                ctx.release();
+            }
+        }
+    }
+
+    /**
+     * Sets the engine to run asynchronous commands with.
+     * Without an engine or once it is shut down these commands run on the calling thread.
+     *
+     * @param asyncEngine the engine or null
+     */
+    public void setAsyncEngine(AsyncCommandEngine asyncEngine)
+    {
+        this.asyncEngine = asyncEngine;
+    }
+
+    public AsyncCommandEngine getAsyncEngine()
+    {
+        return asyncEngine;
+    }
+
+    public RateLimiter getRateLimiter()
+    {
+        return rateLimiter;
     }
 
     public List<String> onTabComplete(BaseCommand cmd, BaseCommandSender sender, String label, String[] args)
     {
-        BaseCommandContext ctx = null;
-        try
-        {
-            ctx = toCommandContext(cmd, sender, label, args, true);
+        return this.onTabComplete(cmd, sender, label, null, args);
+    }
 
-            List<String> result = this.completeChild(ctx);
-            if (result == null)
+    /**
+     * Tab-completes the raw arguments of a command.
+     * The sender's {@link CompletionSession} keeps the tokens and parse state of the previous request,
+     * if the arguments extend the previous ones only the changed tail gets lexed and parsed again.
+     *
+     * @param cmd    the command
+     * @param sender the sender
+     * @param label  the label the command was called with
+     * @param args   the raw arguments following the label
+     *
+     * @return the completions
+     */
+    public List<String> onTabComplete(BaseCommand cmd, BaseCommandSender sender, String label, CharSequence args)
+    {
+        return this.onTabComplete(cmd, sender, label, args, null);
+    }
+
+    /**
+     * @param line the raw arguments or null if they are given pre-split
+     * @param args the pre-split arguments
+     */
+    private List<String> onTabComplete(BaseCommand cmd, BaseCommandSender sender, String label, CharSequence line,
+                                       String[] args)
+    {
+        CompletionSession session = this.getCompletionSession(sender);
+        synchronized (session)
+        {
+            BaseCommandContext ctx = null;
+            try
             {
-                result = ctx.getCommand().tabComplete(ctx);
+                ctx = line == null ? session.update(cmd, sender, label, args) : session.update(cmd, sender, label, line);
+                ctx = delegate(ctx, true);
+                return this.complete(ctx);
             }
-
-            if (result != null)
+            catch (Exception e)
             {
-                // TODO configurable max offers
-                return result;
+                session.reset();
+                this.handleCommandException(ctx == null ? cmd : ctx.getCommand(), ctx, sender, e);
+            }
+            finally
+            {
+                if (ctx != null)
+                {
+                    ctx.release();
+                }
             }
         }
+        return Collections.emptyList();
+    }
+
+    public List<String> onTabComplete(BaseCommand cmd, BaseCommandSender sender, String label, CommandLine args)
+    {
+        BaseCommandContext ctx = null;
+        try
+        {
+            ctx = this.toCommandContext(cmd, sender, label, args, true);
+            return this.complete(ctx);
+        }
         catch (Exception e)
         {
             this.handleCommandException(ctx == null ? cmd : ctx.getCommand(), ctx, sender, e);
         }
+        finally
+        {
+            if (ctx != null)
+            {
+                ctx.release();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private List<String> complete(BaseCommandContext ctx)
+    {
+        List<String> result = this.completeChild(ctx);
+        if (result == null)
+        {
+            result = ctx.getCommand().tabComplete(ctx);
+        }
+
+        if (result != null)
+        {
+            // TODO configurable max offers
+            return result;
+        }
         return Collections.emptyList();
     }
 
+    private CompletionSession getCompletionSession(BaseCommandSender sender)
+    {
+        UUID id = idOf(sender);
+        CompletionSession session = this.completionSessions.get(id);
+        if (session != null && !session.isIdle(this.completionSessionTimeout))
+        {
+            return session;
+        }
+        this.evictIdleCompletionSessions();
+        session = new CompletionSession();
+        CompletionSession existing = this.completionSessions.putIfAbsent(id, session);
+        return existing == null ? session : existing;
+    }
+
+    /**
+     * Sets how long a completion session is kept after the last completion request
+     *
+     * @param timeout the timeout
+     * @param unit    the unit of the timeout
+     */
+    public void setCompletionSessionTimeout(long timeout, TimeUnit unit)
+    {
+        this.completionSessionTimeout = unit.toMillis(timeout);
+    }
+
+    /**
+     * Drops the completion session of the given sender, this should be called when the sender disconnects
+     *
+     * @param sender the sender
+     */
+    public void clearCompletionSession(BaseCommandSender sender)
+    {
+        this.completionSessions.remove(idOf(sender));
+    }
+
+    /**
+     * Returns the id to key the completion session of the sender with, senders without an id share one
+     */
+    private static UUID idOf(BaseCommandSender sender)
+    {
+        UUID id = sender.getUniqueId();
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * Drops all completion sessions that have not been used within the timeout
+     */
+    public void evictIdleCompletionSessions()
+    {
+        Iterator<CompletionSession> it = this.completionSessions.values().iterator();
+        while (it.hasNext())
+        {
+            if (it.next().isIdle(this.completionSessionTimeout))
+            {
+                it.remove();
+            }
+        }
+    }
+
     protected final List<String> completeChild(BaseCommandContext context)
     {
         BaseCommand command = context.getCommand();
@@ -104,44 +306,84 @@ public abstract class CommandExecutor
         return null;
     }
 
-    private static BaseCommandContext toCommandContext(BaseCommand command, BaseCommandSender sender, String label, String[] args, boolean tabComplete)
+    private BaseCommandContext toCommandContext(BaseCommand command, BaseCommandSender sender, String label, CommandLine args, boolean tabComplete)
     {
         Stack<String> labels = new Stack<String>();
         labels.push(label);
 
-        if (args.length > 0 && !args[0].isEmpty())
+        BaseCommand root = command;
+        command = descend(command, sender, args, labels);
+        args = args.from(labels.size() - 1);
+        if (!tabComplete && command != root && command.getRateLimit() != null)
+        {
+            long wait = this.rateLimiter.acquireCommand(sender, command);
+            if (wait > 0)
+            {
+                // the rejected call must not use up the tokens admit took
+                this.rateLimiter.refund(sender, root);
+                throw new RateLimitedException(wait);
+            }
+        }
+
+        // TODO aliascmd prefix & suffix
+
+        return delegate(command.getContextFactory().parse(command, sender, labels, args), tabComplete);
+    }
+
+    /**
+     * Walks down the children of the given command following the leading arguments
+     *
+     * @param command the command to start from
+     * @param sender  the sender
+     * @param args    the arguments
+     * @param labels  the labels, every consumed argument gets pushed
+     *
+     * @return the deepest command found
+     */
+    static BaseCommand descend(BaseCommand command, BaseCommandSender sender, CommandLine args, Stack<String> labels)
+    {
+        if (args.size() > 0 && args.getLength(0) > 0)
         {
-            while (args.length > 0)
+            if (command.isRegistered())
+            {
+                final int depth = labels.size();
+                command = command.getCommandManager().getCommandTree().resolve(command, args, labels);
+                args = args.from(labels.size() - depth);
+            }
+            // commands that are not indexed in the tree
+            while (args.size() > 0)
             {
-                if ("?".equals(args[0]))
+                if (args.matches(0, "?"))
                 {
-                    new BaseCommandContext(command, sender, labels, Arrays.asList(Arrays.copyOfRange(args, 1, args.length)), Collections.<String>emptySet(), Collections.<String, String>emptyMap(), Type.ANY);
+                    new BaseCommandContext(command, sender, labels, args.from(1));
                 }
-                BaseCommand child = command.getChild(args[0]);
+                BaseCommand child = command.getChild(args.getSymbol(0));
                 if (child == null)
                 {
                     break;
                 }
                 command = child;
-                labels.push(args[0]);
-                args = Arrays.copyOfRange(args, 1, args.length);
+                labels.push(args.getString(0));
+                args = args.from(1);
             }
         }
+        return command;
+    }
 
-        // TODO aliascmd prefix & suffix
-
-        BaseCommandContext ctx = command.getContextFactory().parse(command, sender, labels, args);
-        if ((!tabComplete || ctx.getRawIndexed().size() != 1) && ctx.getCommand().getDelegation() != null)
+    private static BaseCommandContext delegate(BaseCommandContext ctx, boolean tabComplete)
+    {
+        BaseCommand command = ctx.getCommand();
+        if ((!tabComplete || ctx.getRawIndexed().size() != 1) && command.getDelegation() != null)
         {
-            String child = ctx.getCommand().getDelegation().delegateTo(ctx);
+            String child = command.getDelegation().delegateTo(ctx);
             if (child != null)
             {
-                BaseCommand target = command.getChild(child);
-                if (target != null)
+                BaseCommandContext filtered = command.getDelegation().filterContext(ctx, child);
+                if (filtered != ctx)
                 {
-                    return target.getContextFactory().parse(target, sender, labels, args);
+                    ctx.release();
                 }
-                throw new IllegalArgumentException("Child delegation failed child does not exist: " + child);
+                return filtered;
             }
         }
         return ctx;
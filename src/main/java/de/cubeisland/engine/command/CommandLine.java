@@ -0,0 +1,682 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Arrays;
+
+/**
+ * A tokenized view on a raw command line.
+ * Tokens are stored as offsets into the original source and only turned into Strings when requested.
+ */
+public final class CommandLine
+{
+    public static final CommandLine EMPTY = new CommandLine("", new int[0], new byte[0], 0, 0);
+
+    private static final byte QUOTED = 1;
+    private static final byte ESCAPED = 2;
+
+    private final CharSequence source;
+    /**
+     * start and end offset of each token: [start0, end0, start1, end1, ...]
+     */
+    private final int[] bounds;
+    private final byte[] kinds;
+    private final String[] strings;
+    private final int offset;
+    private final int size;
+
+    private CommandLine(CharSequence source, int[] bounds, byte[] kinds, int offset, int size)
+    {
+        this(source, bounds, kinds, new String[size], offset, size);
+    }
+
+    private CommandLine(CharSequence source, int[] bounds, byte[] kinds, String[] strings, int offset, int size)
+    {
+        this.source = source;
+        this.bounds = bounds;
+        this.kinds = kinds;
+        this.strings = strings;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Splits the given line into tokens in a single pass.
+     *
+     * Tokens are separated by whitespace. A token starting with " or ' extends until the same quote char is
+     * followed by whitespace or the end of the line. A backslash escapes a following whitespace, quote or backslash.
+     * A line that is empty or ends with whitespace outside of a token gets a trailing empty token,
+     * which is needed for tab-completion.
+     *
+     * @param line the raw line
+     *
+     * @return the tokenized line
+     */
+    public static CommandLine tokenize(CharSequence line)
+    {
+        return tokenize(line, new int[8], new byte[4], 0, 0, 0);
+    }
+
+    /**
+     * @param consumed the end of the chars consumed by the tokens that are already present
+     * @param i        the position to continue lexing at
+     */
+    private static CommandLine tokenize(CharSequence line, int[] bounds, byte[] kinds, int count, int consumed, int i)
+    {
+        final int length = line.length();
+        while (true)
+        {
+            while (i < length && isWhitespace(line.charAt(i)))
+            {
+                i++;
+            }
+            if (i >= length)
+            {
+                if (count == 0 || consumed < length)
+                {
+                    if (count == kinds.length)
+                    {
+                        bounds = grow(bounds);
+                        kinds = grow(kinds);
+                    }
+                    bounds[count * 2] = length;
+                    bounds[count * 2 + 1] = length;
+                    count++;
+                }
+                break;
+            }
+
+            if (count == kinds.length)
+            {
+                bounds = grow(bounds);
+                kinds = grow(kinds);
+            }
+            i = lex(line, i, bounds, kinds, count++);
+            consumed = i;
+        }
+        return new CommandLine(line, bounds, kinds, 0, count);
+    }
+
+    /**
+     * Lexes the token starting at the given position, which must not be whitespace
+     *
+     * @return the position after the token
+     */
+    private static int lex(CharSequence line, int i, int[] bounds, byte[] kinds, int count)
+    {
+        final int length = line.length();
+        byte kind = 0;
+        int start = i;
+        int end;
+        char c = line.charAt(i);
+        if (c == '"' || c == '\'')
+        {
+            final char quote = c;
+            kind = QUOTED;
+            start = ++i;
+            end = -1;
+            while (i < length)
+            {
+                c = line.charAt(i);
+                if (c == '\\' && i + 1 < length && isEscapable(line.charAt(i + 1)))
+                {
+                    kind |= ESCAPED;
+                    i += 2;
+                }
+                else if (c == quote && (i + 1 == length || isWhitespace(line.charAt(i + 1))))
+                {
+                    end = i++;
+                    break;
+                }
+                else
+                {
+                    i++;
+                }
+            }
+            if (end == -1)
+            {
+                // unterminated quote: the token extends to the end of the line
+                end = length;
+            }
+        }
+        else
+        {
+            while (i < length)
+            {
+                c = line.charAt(i);
+                if (c == '\\' && i + 1 < length && isEscapable(line.charAt(i + 1)))
+                {
+                    kind |= ESCAPED;
+                    i += 2;
+                }
+                else if (isWhitespace(c))
+                {
+                    break;
+                }
+                else
+                {
+                    i++;
+                }
+            }
+            end = i;
+        }
+
+        bounds[count * 2] = start;
+        bounds[count * 2 + 1] = end;
+        kinds[count] = kind;
+        return i;
+    }
+
+    /**
+     * Tokenizes arguments that have already been split at spaces.
+     * Each argument becomes one token without joining the arguments into a new String,
+     * only arguments that start with a quote or contain a backslash or tab get lexed like {@link #tokenize(CharSequence)} does.
+     *
+     * @param args the arguments
+     *
+     * @return the tokenized line
+     */
+    public static CommandLine of(String[] args)
+    {
+        if (args.length == 0)
+        {
+            return EMPTY;
+        }
+        final JoinedArgs source = new JoinedArgs(args);
+        int[] bounds = new int[args.length * 2];
+        byte[] kinds = new byte[args.length];
+        int count = 0;
+        int consumed = 0;
+        int arg = 0;
+        while (arg < args.length)
+        {
+            if (count == kinds.length)
+            {
+                bounds = grow(bounds);
+                kinds = grow(kinds);
+            }
+            final String string = args[arg];
+            final int start = source.starts[arg];
+            if (string.length() == 0)
+            {
+                arg++;
+            }
+            else if (isPlain(string))
+            {
+                consumed = start + string.length();
+                bounds[count * 2] = start;
+                bounds[count * 2 + 1] = consumed;
+                count++;
+                arg++;
+            }
+            else
+            {
+                // a quoted or escaped token may span several args, tabs split an arg into several tokens
+                int i = start;
+                while (true)
+                {
+                    final int argEnd = source.starts[arg] + args[arg].length();
+                    while (i < argEnd && isWhitespace(source.charAt(i)))
+                    {
+                        i++;
+                    }
+                    if (i == argEnd)
+                    {
+                        arg++;
+                        break;
+                    }
+                    if (count == kinds.length)
+                    {
+                        bounds = grow(bounds);
+                        kinds = grow(kinds);
+                    }
+                    i = consumed = lex(source, i, bounds, kinds, count++);
+                    while (arg + 1 < args.length && source.starts[arg + 1] <= i)
+                    {
+                        arg++;
+                    }
+                }
+            }
+        }
+        if (count == 0 || consumed < source.length())
+        {
+            // empty args or whitespace at the end are followed by an empty token for tab-completion
+            if (count == kinds.length)
+            {
+                bounds = grow(bounds);
+                kinds = grow(kinds);
+            }
+            bounds[count * 2] = source.length();
+            bounds[count * 2 + 1] = source.length();
+            count++;
+        }
+        return new CommandLine(source, bounds, kinds, 0, count);
+    }
+
+    private static boolean isPlain(String arg)
+    {
+        final char first = arg.charAt(0);
+        return first != '"' && first != '\'' && arg.indexOf('\\') == -1 && arg.indexOf('\t') == -1;
+    }
+
+    /**
+     * Checks whether this line continues the given line: both lines share their source up to the last token of
+     * the given line and all tokens before it.
+     *
+     * @param line the previous line
+     *
+     * @return true if everything parsed before the last token of the given line is still valid for this line
+     */
+    public boolean continues(CommandLine line)
+    {
+        if (this.offset != 0 || line.offset != 0 || line.size == 0 || this.size < line.size)
+        {
+            return false;
+        }
+        final int last = line.size - 1;
+        for (int i = 0; i < last; i++)
+        {
+            if (this.bounds[i * 2] != line.bounds[i * 2] || this.bounds[i * 2 + 1] != line.bounds[i * 2 + 1]
+                || this.kinds[i] != line.kinds[i])
+            {
+                return false;
+            }
+        }
+        final int restart = line.bounds[last * 2];
+        if (this.source.length() < restart)
+        {
+            return false;
+        }
+        for (int i = restart - 1; i >= 0; i--)
+        {
+            if (this.source.charAt(i) != line.source.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tokenizes a line that extends the line of this view.
+     * Only the last token and everything after it get lexed again, all tokens before stay untouched.
+     *
+     * @param line the new line
+     *
+     * @return the tokenized line or null if the new line does not start with the source of this one
+     */
+    public CommandLine extend(CharSequence line)
+    {
+        if (this.offset != 0 || this.size == 0 || line.length() < this.source.length())
+        {
+            return null;
+        }
+        for (int i = this.source.length() - 1; i >= 0; i--)
+        {
+            if (this.source.charAt(i) != line.charAt(i))
+            {
+                return null;
+            }
+        }
+        final int last = this.size - 1;
+        int restart = this.bounds[last * 2];
+        if ((this.kinds[last] & QUOTED) != 0)
+        {
+            restart--; // the opening quote
+        }
+        int capacity = this.kinds.length;
+        while (capacity < this.size + 4)
+        {
+            capacity *= 2;
+        }
+        int[] bounds = new int[capacity * 2];
+        byte[] kinds = new byte[capacity];
+        System.arraycopy(this.bounds, 0, bounds, 0, last * 2);
+        System.arraycopy(this.kinds, 0, kinds, 0, last);
+        int consumed = 0;
+        if (last > 0)
+        {
+            // all tokens but the last one are closed
+            consumed = this.bounds[last * 2 - 1] + ((this.kinds[last - 1] & QUOTED) != 0 ? 1 : 0);
+        }
+        return tokenize(line, bounds, kinds, last, consumed, restart);
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isEscapable(char c)
+    {
+        return isWhitespace(c) || c == '"' || c == '\'' || c == '\\';
+    }
+
+    private static int[] grow(int[] array)
+    {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static byte[] grow(byte[] array)
+    {
+        byte[] grown = new byte[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Returns a view on this line starting at the given token
+     *
+     * @param from the first token of the view
+     *
+     * @return the view
+     */
+    public CommandLine from(int from)
+    {
+        if (from == 0)
+        {
+            return this;
+        }
+        if (from > this.size)
+        {
+            throw new IndexOutOfBoundsException("Token " + from + " is out of bounds: " + this.size);
+        }
+        return new CommandLine(this.source, this.bounds, this.kinds, this.strings, this.offset + from, this.size - from);
+    }
+
+    public CharSequence getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the amount of tokens in this view
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0 || (this.size == 1 && this.getLength(0) == 0);
+    }
+
+    private int checkIndex(int index)
+    {
+        if (index < 0 || index >= this.size)
+        {
+            throw new IndexOutOfBoundsException("Token " + index + " is out of bounds: " + this.size);
+        }
+        return this.offset + index;
+    }
+
+    public int getStart(int index)
+    {
+        return this.bounds[checkIndex(index) * 2];
+    }
+
+    public int getEnd(int index)
+    {
+        return this.bounds[checkIndex(index) * 2 + 1];
+    }
+
+    public int getLength(int index)
+    {
+        int i = checkIndex(index) * 2;
+        return this.bounds[i + 1] - this.bounds[i];
+    }
+
+    public boolean isQuoted(int index)
+    {
+        return (this.kinds[checkIndex(index)] & QUOTED) != 0;
+    }
+
+    public boolean isEscaped(int index)
+    {
+        return (this.kinds[checkIndex(index)] & ESCAPED) != 0;
+    }
+
+    /**
+     * Returns a char of the raw token. Escape sequences are not resolved.
+     *
+     * @param index the token
+     * @param pos   the position inside the token
+     */
+    public char charAt(int index, int pos)
+    {
+        return this.source.charAt(this.getStart(index) + pos);
+    }
+
+    /**
+     * Checks whether the token equals the given string without creating a String for the token
+     */
+    public boolean matches(int index, String string)
+    {
+        return this.regionMatches(index, string, false);
+    }
+
+    /**
+     * Checks whether the token equals the given string ignoring case without creating a String for the token
+     */
+    public boolean matchesIgnoreCase(int index, String string)
+    {
+        return this.regionMatches(index, string, true);
+    }
+
+    private boolean regionMatches(int index, String string, boolean ignoreCase)
+    {
+        if (this.isEscaped(index))
+        {
+            String token = this.getString(index);
+            return ignoreCase ? token.equalsIgnoreCase(string) : token.equals(string);
+        }
+        final int start = this.getStart(index);
+        final int length = this.getEnd(index) - start;
+        if (length != string.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            char a = this.source.charAt(start + i);
+            char b = string.charAt(i);
+            if (a != b && (!ignoreCase || Character.toLowerCase(a) != Character.toLowerCase(b)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the token in the global {@link SymbolTable} without creating a String for it
+     *
+     * @param index the token
+     *
+     * @return the symbol id or {@link SymbolTable#UNKNOWN}
+     */
+    public int getSymbol(int index)
+    {
+        return this.getSymbol(index, 0);
+    }
+
+    /**
+     * Looks up the token without its first chars in the global {@link SymbolTable}
+     *
+     * @param index the token
+     * @param skip  the amount of chars to skip
+     *
+     * @return the symbol id or {@link SymbolTable#UNKNOWN}
+     */
+    public int getSymbol(int index, int skip)
+    {
+        if (this.isEscaped(index))
+        {
+            String token = this.getString(index);
+            return SymbolTable.global().lookup(token, skip, token.length());
+        }
+        return SymbolTable.global().lookup(this.source, this.getStart(index) + skip, this.getEnd(index));
+    }
+
+    /**
+     * Returns the token as a String with its escape sequences resolved.
+     * The String is created once and cached.
+     *
+     * @param index the token
+     *
+     * @return the token
+     */
+    public String getString(int index)
+    {
+        final int i = checkIndex(index);
+        String string = this.strings[i];
+        if (string == null)
+        {
+            final int start = this.bounds[i * 2];
+            final int end = this.bounds[i * 2 + 1];
+            if ((this.kinds[i] & ESCAPED) == 0)
+            {
+                string = this.source.subSequence(start, end).toString();
+            }
+            else
+            {
+                StringBuilder sb = new StringBuilder(end - start);
+                for (int pos = start; pos < end; pos++)
+                {
+                    char c = this.source.charAt(pos);
+                    if (c == '\\' && pos + 1 < end && isEscapable(this.source.charAt(pos + 1)))
+                    {
+                        c = this.source.charAt(++pos);
+                    }
+                    sb.append(c);
+                }
+                string = sb.toString();
+            }
+            this.strings[i] = string;
+        }
+        return string;
+    }
+
+    @Override
+    public String toString()
+    {
+        if (this.size == 0)
+        {
+            return "";
+        }
+        return this.source.subSequence(this.getStart(0), this.getEnd(this.size - 1)).toString();
+    }
+
+    /**
+     * The arguments joined with single spaces without copying them
+     */
+    private static final class JoinedArgs implements CharSequence
+    {
+        private final String[] args;
+        private final int[] starts;
+        private final int length;
+        /**
+         * the arg of the last read char, only a hint that gets checked on every read
+         */
+        private int last = 0;
+
+        JoinedArgs(String[] args)
+        {
+            this.args = args;
+            this.starts = new int[args.length];
+            int length = -1;
+            for (int i = 0; i < args.length; i++)
+            {
+                this.starts[i] = length + 1;
+                length += args[i].length() + 1;
+            }
+            this.length = length;
+        }
+
+        private int argAt(int index)
+        {
+            int arg = this.last;
+            if (index >= this.starts[arg] && (arg + 1 == this.starts.length || index < this.starts[arg + 1]))
+            {
+                // chars are mostly read in order, so the arg of the last read usually holds the next one too
+                return arg;
+            }
+            arg = Arrays.binarySearch(this.starts, index);
+            if (arg < 0)
+            {
+                arg = -arg - 2;
+            }
+            this.last = arg;
+            return arg;
+        }
+
+        public int length()
+        {
+            return this.length;
+        }
+
+        public char charAt(int index)
+        {
+            if (index < 0 || index >= this.length)
+            {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            final int arg = this.argAt(index);
+            final int pos = index - this.starts[arg];
+            return pos == this.args[arg].length() ? ' ' : this.args[arg].charAt(pos);
+        }
+
+        public CharSequence subSequence(int start, int end)
+        {
+            if (start < 0 || end > this.length || start > end)
+            {
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            }
+            if (start == end)
+            {
+                return "";
+            }
+            final int arg = this.argAt(start);
+            final int offset = this.starts[arg];
+            if (end - offset <= this.args[arg].length())
+            {
+                return this.args[arg].substring(start - offset, end - offset);
+            }
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++)
+            {
+                sb.append(this.charAt(i));
+            }
+            return sb;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.subSequence(0, this.length).toString();
+        }
+    }
+}
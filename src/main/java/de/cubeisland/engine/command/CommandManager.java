@@ -26,12 +26,16 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
+import de.cubeisland.engine.command.reader.ReaderRegistry;
+
 public abstract class CommandManager
 {
     private Locale defaultLocale;
     private Map<Class, ResultManager> resultManagers = new HashMap<Class, ResultManager>();
 
     private final CommandExecutor executor;
+    private final CommandTree tree = new CommandTree();
+    private final ReaderRegistry readers = new ReaderRegistry(ReaderRegistry.global());
 
     protected CommandManager(CommandExecutor executor)
     {
@@ -50,6 +54,30 @@ public abstract class CommandManager
             throw new IllegalArgumentException("The given command is already registered!");
         }
         this.registerCommand0(command);
+        this.index(command);
+    }
+
+    /**
+     * Adds the command, its children and its aliases to the command tree
+     *
+     * @param command the command
+     */
+    final void index(BaseCommand command)
+    {
+        this.tree.insert(command);
+        for (BaseCommand child : command.getChildren())
+        {
+            this.index(child);
+        }
+        for (AliasCommand alias : command.getAliases())
+        {
+            this.tree.insert(alias);
+        }
+    }
+
+    final CommandTree getCommandTree()
+    {
+        return this.tree;
     }
 
     protected abstract void registerCommand0(BaseCommand command);
@@ -73,7 +101,47 @@ public abstract class CommandManager
     protected abstract void logExecution(BaseCommandSender sender, BaseCommand command, String[] args);
 
     public abstract BaseCommand getCommand(String name);
-    public abstract boolean runCommand(BaseCommandSender sender, String commandline);
+
+    public boolean runCommand(BaseCommandSender sender, String commandline)
+    {
+        // only the label is read before the call got admitted
+        int start = 0;
+        while (start < commandline.length() && isWhitespace(commandline.charAt(start)))
+        {
+            start++;
+        }
+        int end = start;
+        while (end < commandline.length() && !isWhitespace(commandline.charAt(end)))
+        {
+            end++;
+        }
+        if (start == end)
+        {
+            return false;
+        }
+        String label = commandline.substring(start, end);
+        BaseCommand command = this.getCommand(label);
+        if (command == null || !this.executor.admit(command, sender))
+        {
+            return false;
+        }
+        return this.executor.execute(command, sender, label, CommandLine.tokenize(commandline).from(1));
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Returns the readers of this manager, types without a reader here are read by the global readers
+     *
+     * @return the reader registry
+     */
+    public ReaderRegistry getReaders()
+    {
+        return this.readers;
+    }
 
     public CommandExecutor getExecutor()
     {
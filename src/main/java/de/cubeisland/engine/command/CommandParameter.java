@@ -27,7 +27,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import de.cubeisland.engine.command.completer.Completer;
-import de.cubeisland.engine.command.reader.ArgumentReader;
 
 public class CommandParameter
 {
@@ -43,11 +42,6 @@ public class CommandParameter
 
     public CommandParameter(String name, String label, Class<?> type, CommandPermission permission)
     {
-        if (!ArgumentReader.hasReader(type))
-        {
-            throw new IllegalArgumentException(
-                "The named parameter '" + name + "' has an unreadable type: " + type.getName());
-        }
         this.name = name;
         this.label = label.isEmpty() ? name : label;
         this.aliases = new HashSet<String>(0);
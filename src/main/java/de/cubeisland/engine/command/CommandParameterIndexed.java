@@ -23,7 +23,6 @@
 package de.cubeisland.engine.command;
 
 import de.cubeisland.engine.command.completer.Completer;
-import de.cubeisland.engine.command.reader.ArgumentReader;
 
 public class CommandParameterIndexed
 {
@@ -42,16 +41,6 @@ public class CommandParameterIndexed
     public CommandParameterIndexed(String[] labels, Class<?>[] types, boolean groupRequiered, boolean required,
                                    int count, CommandPermission permission)
     {
-        int i = 0;
-        for (Class<?> type : types)
-        {
-            if (!ArgumentReader.hasReader(type))
-            {
-                throw new IllegalArgumentException(
-                    "The indexed parameter '" + labels[0] + "(" + i + ")' has an unreadable type: " + type.getName());
-            }
-            i++;
-        }
         this.labels = labels;
         this.types = types;
         this.groupRequired = groupRequiered;
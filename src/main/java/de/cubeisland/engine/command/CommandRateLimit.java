@@ -0,0 +1,72 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that holds up to permits tokens and gets refilled by one token every period / permits.
+ * A full bucket admits a burst of permits calls, after that calls are admitted at the refill rate.
+ */
+public final class CommandRateLimit
+{
+    private final int permits;
+    private final long period;
+    private final long interval;
+
+    public CommandRateLimit(int permits, long period, TimeUnit unit)
+    {
+        if (permits < 1 || period < 1)
+        {
+            throw new IllegalArgumentException("The permits and the period have to be positive!");
+        }
+        this.permits = permits;
+        this.period = unit.toNanos(period);
+        this.interval = this.period / permits;
+    }
+
+    public int getPermits()
+    {
+        return permits;
+    }
+
+    /**
+     * Returns the period in nanoseconds
+     *
+     * @return the period
+     */
+    public long getPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * Returns the time it takes to refill a single token in nanoseconds
+     *
+     * @return the refill interval
+     */
+    public long getInterval()
+    {
+        return interval;
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Stack;
+
+/**
+ * A radix tree over the whole command namespace of a {@link CommandManager}.
+ * Commands are keyed by their lowercased labels joined by spaces, so a single walk
+ * over the tokens of a command line finds the deepest matching subcommand.
+ * Insertions copy the touched path and publish a new root, lookups never lock.
+ */
+final class CommandTree
+{
+    private static final char SEPARATOR = ' ';
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private volatile Node root = new Node(NO_CHARS, NO_NODES, null);
+
+    /**
+     * Indexes the command under the labels of itself and its parents
+     *
+     * @param command the command
+     */
+    public synchronized void insert(BaseCommand command)
+    {
+        this.root = insert(this.root, toKey(command), 0, command);
+    }
+
+    /**
+     * Walks down the tree from the given command following the leading arguments
+     *
+     * @param command the command to start from or null to start with a root command
+     * @param args    the arguments
+     * @param labels  the labels, every consumed argument gets pushed
+     *
+     * @return the deepest command found or the given command if it is not indexed
+     */
+    public BaseCommand resolve(BaseCommand command, CommandLine args, Stack<String> labels)
+    {
+        Node node = this.root;
+        int pos = 0;
+        if (command != null)
+        {
+            // find the node of the start command by walking its own key
+            char[] key = toKey(command);
+            for (char c : key)
+            {
+                if (pos == node.label.length)
+                {
+                    node = node.getChild(c);
+                    pos = 0;
+                    if (node == null)
+                    {
+                        return command;
+                    }
+                }
+                if (node.label[pos++] != c)
+                {
+                    return command;
+                }
+            }
+            if (pos != node.label.length || node.command != command)
+            {
+                return command;
+            }
+        }
+        BaseCommand found = command;
+        int consumed = 0;
+        for (int i = 0; i < args.size() && args.getLength(i) > 0; i++)
+        {
+            if (found != null)
+            {
+                // a space separates the labels of a command and its subcommands
+                node = node.getChild(SEPARATOR);
+                pos = 1;
+            }
+            node = walk(node, pos, args, i);
+            if (node == null)
+            {
+                break;
+            }
+            pos = node.label.length;
+            if (node.command == null)
+            {
+                break;
+            }
+            found = node.command;
+            consumed = i + 1;
+        }
+        for (int i = 0; i < consumed; i++)
+        {
+            labels.push(args.getString(i));
+        }
+        return found;
+    }
+
+    /**
+     * Walks the given token starting at the given position of the node
+     *
+     * @return the node the token ends in if it ends a label or null
+     */
+    private static Node walk(Node node, int pos, CommandLine args, int index)
+    {
+        if (node == null)
+        {
+            return null;
+        }
+        final boolean raw = !args.isQuoted(index) && !args.isEscaped(index);
+        final String string = raw ? null : args.getString(index);
+        final int length = raw ? args.getLength(index) : string.length();
+        for (int i = 0; i < length; i++)
+        {
+            char c = Character.toLowerCase(raw ? args.charAt(index, i) : string.charAt(i));
+            if (c == SEPARATOR)
+            {
+                // a quoted or escaped token must not cross into the labels of a subcommand
+                return null;
+            }
+            if (pos == node.label.length)
+            {
+                node = node.getChild(c);
+                pos = 0;
+                if (node == null)
+                {
+                    return null;
+                }
+            }
+            if (node.label[pos++] != c)
+            {
+                return null;
+            }
+        }
+        return pos == node.label.length ? node : null;
+    }
+
+    private static char[] toKey(BaseCommand command)
+    {
+        StringBuilder key = new StringBuilder(command.getName());
+        BaseCommand parent = command.getParent();
+        while (parent != null)
+        {
+            key.insert(0, SEPARATOR).insert(0, parent.getName());
+            parent = parent.getParent();
+        }
+        char[] chars = new char[key.length()];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = Character.toLowerCase(key.charAt(i));
+        }
+        return chars;
+    }
+
+    private static Node insert(Node node, char[] key, int offset, BaseCommand command)
+    {
+        if (offset == key.length)
+        {
+            return new Node(node.label, node.children, command);
+        }
+        int i = node.indexOf(key[offset]);
+        if (i < 0)
+        {
+            Node leaf = new Node(copy(key, offset, key.length), NO_NODES, command);
+            return node.withChild(-(i + 1), leaf, true);
+        }
+        Node child = node.children[i];
+        int common = 0;
+        while (common < child.label.length && offset + common < key.length
+            && child.label[common] == key[offset + common])
+        {
+            common++;
+        }
+        if (common == child.label.length)
+        {
+            return node.withChild(i, insert(child, key, offset + common, command), false);
+        }
+        // split the edge at the first differing char
+        Node tail = new Node(copy(child.label, common, child.label.length), child.children, child.command);
+        Node split = new Node(copy(child.label, 0, common), new Node[]{tail}, null);
+        return node.withChild(i, insert(split, key, offset + common, command), false);
+    }
+
+    private static char[] copy(char[] chars, int from, int to)
+    {
+        char[] copy = new char[to - from];
+        System.arraycopy(chars, from, copy, 0, copy.length);
+        return copy;
+    }
+
+    private static final class Node
+    {
+        private final char[] label;
+        /**
+         * Sorted by the first char of their label
+         */
+        private final Node[] children;
+        private final BaseCommand command;
+
+        private Node(char[] label, Node[] children, BaseCommand command)
+        {
+            this.label = label;
+            this.children = children;
+            this.command = command;
+        }
+
+        private int indexOf(char c)
+        {
+            int low = 0;
+            int high = this.children.length - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                char midChar = this.children[mid].label[0];
+                if (midChar < c)
+                {
+                    low = mid + 1;
+                }
+                else if (midChar > c)
+                {
+                    high = mid - 1;
+                }
+                else
+                {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private Node getChild(char c)
+        {
+            int i = this.indexOf(c);
+            return i < 0 ? null : this.children[i];
+        }
+
+        private Node withChild(int index, Node child, boolean insert)
+        {
+            Node[] children;
+            if (insert)
+            {
+                children = new Node[this.children.length + 1];
+                System.arraycopy(this.children, 0, children, 0, index);
+                System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+            }
+            else
+            {
+                children = this.children.clone();
+            }
+            children[index] = child;
+            return new Node(this.label, children, this.command);
+        }
+    }
+}
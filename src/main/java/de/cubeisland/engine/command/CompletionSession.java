@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Stack;
+
+import de.cubeisland.engine.command.BaseCommandContext.Checkpoint;
+
+/**
+ * Keeps the tokens and parse state of the last tab-completion request of a sender
+ */
+final class CompletionSession
+{
+    private final Checkpoint checkpoint = new Checkpoint();
+    private BaseCommand root;
+    private String label;
+    private CommandLine line;
+    /**
+     * the amount of leading tokens that selected a child command
+     */
+    private int depth;
+    /**
+     * the command the context got parsed for, a delegation may have bound the context to a child since
+     */
+    private BaseCommand command;
+    private BaseCommandContext context;
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    BaseCommandContext update(BaseCommand root, BaseCommandSender sender, String label, CharSequence args)
+    {
+        if (this.canResume(root, label))
+        {
+            CommandLine line = this.line.extend(args);
+            if (line != null)
+            {
+                return this.resume(line);
+            }
+        }
+        return this.parse(root, sender, label, CommandLine.tokenize(args));
+    }
+
+    BaseCommandContext update(BaseCommand root, BaseCommandSender sender, String label, String[] args)
+    {
+        CommandLine line = CommandLine.of(args);
+        if (this.canResume(root, label) && line.continues(this.line))
+        {
+            return this.resume(line);
+        }
+        return this.parse(root, sender, label, line);
+    }
+
+    private boolean canResume(BaseCommand root, String label)
+    {
+        this.lastAccess = System.currentTimeMillis();
+        if (this.context != null && this.root == root && this.label.equals(label)
+            && this.context.getCommand() == this.command)
+        {
+            // the first argument after the labels may still select another child
+            return this.line.size() - 1 > this.depth
+                && this.context.getPlan() == this.context.getCommand().getContextFactory().getPlan();
+        }
+        return false;
+    }
+
+    private BaseCommandContext resume(CommandLine line)
+    {
+        this.line = line;
+        this.context.getCommand().getContextFactory().resume(this.context, line.from(this.depth), this.checkpoint);
+        return this.context;
+    }
+
+    private BaseCommandContext parse(BaseCommand root, BaseCommandSender sender, String label, CommandLine line)
+    {
+        this.root = root;
+        this.label = label;
+        this.line = line;
+        Stack<String> labels = new Stack<String>();
+        labels.push(label);
+        BaseCommand command = CommandExecutor.descend(root, sender, this.line, labels);
+        this.depth = labels.size() - 1;
+        this.command = command;
+        this.context = command.getContextFactory().parse(command, sender, labels, this.line.from(this.depth),
+                                                         this.checkpoint);
+        return this.context;
+    }
+
+    void reset()
+    {
+        this.root = null;
+        this.label = null;
+        this.line = null;
+        this.command = null;
+        this.context = null;
+    }
+
+    boolean isIdle(long timeout)
+    {
+        return System.currentTimeMillis() - this.lastAccess > timeout;
+    }
+}
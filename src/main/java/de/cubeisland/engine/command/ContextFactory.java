@@ -27,13 +27,15 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
 
+import de.cubeisland.engine.command.BaseCommandContext.Checkpoint;
+import de.cubeisland.engine.command.reader.ReaderRegistry;
+
 import static de.cubeisland.engine.command.Type.*;
 import static java.util.Locale.ENGLISH;
 
@@ -42,67 +44,90 @@ public class ContextFactory
     private final LinkedHashMap<Integer, CommandParameterIndexed> indexed = new LinkedHashMap<Integer, CommandParameterIndexed>();
     private final Map<String, CommandParameter> named = new LinkedHashMap<String, CommandParameter>();
     private final Map<String, CommandFlag> flags = new LinkedHashMap<String, CommandFlag>();
-    private ArgBounds bounds;
     private int indexedCount = 0;
+    private volatile ParsePlan plan;
+    private boolean pooled = false;
+    private boolean eager = false;
+    private volatile ReaderRegistry readers = ReaderRegistry.global();
 
-    protected static int readString(StringBuilder sb, String[] args, int offset)
+    /**
+     * Enables the arena mode for this factory.
+     * Contexts are then taken from a thread-confined pool and handed back once the command returned,
+     * so a pooled context must never escape {@link BaseCommand#run}.
+     *
+     * @param pooled whether to pool contexts
+     *
+     * @return fluent interface
+     */
+    public ContextFactory setPooled(boolean pooled)
     {
-        if (offset >= args.length || args[offset].isEmpty())
-        {
-            // string is empty? return an empty string
-            sb.append("");
-            return 1;
-        }
+        this.pooled = pooled;
+        return this;
+    }
 
-        // first char is not a quote char? return the string
-        final char quoteChar = args[offset].charAt(0);
-        if (quoteChar != '"' && quoteChar != '\'')
-        {
-            sb.append(args[offset]);
-            return 1;
-        }
+    public boolean isPooled()
+    {
+        return this.pooled;
+    }
 
-        String string = args[offset].substring(1);
-        // string has at least 2 chars and ends with the same quote char? return the string without quotes
-        if (string.length() > 0 && string.charAt(string.length() - 1) == quoteChar)
-        {
-            sb.append(string.substring(0, string.length() - 1));
-            return 1;
-        }
+    /**
+     * Arguments are converted when the command first accesses them.
+     * An eager factory converts all arguments after checking the context and before running the command.
+     *
+     * @param eager whether to convert all arguments up front
+     *
+     * @return fluent interface
+     */
+    public ContextFactory setEager(boolean eager)
+    {
+        this.eager = eager;
+        return this;
+    }
 
-        sb.append(string);
-        offset++;
-        int argCounter = 1;
+    public boolean isEager()
+    {
+        return this.eager;
+    }
 
-        while (offset < args.length)
+    /**
+     * Sets the registry the readers of the parameters are resolved with.
+     * Commands bind their factory to the registry of their manager.
+     *
+     * @param readers the registry
+     *
+     * @return fluent interface
+     */
+    public ContextFactory setReaders(ReaderRegistry readers)
+    {
+        if (this.readers != readers)
         {
-            sb.append(' ');
-            argCounter++;
-            string = args[offset++];
-            if (string.length() > 0 && string.charAt(string.length() - 1) == quoteChar)
-            {
-                sb.append(string.substring(0, string.length() - 1));
-                break;
-            }
-            sb.append(string);
+            this.readers = readers;
+            this.plan = null;
         }
-        return argCounter;
+        return this;
+    }
+
+    public ReaderRegistry getReaders()
+    {
+        return this.readers;
     }
 
     public ArgBounds getArgBounds()
     {
-        return this.bounds;
+        return this.getPlan().getBounds();
     }
 
     public final ContextFactory addIndexed(CommandParameterIndexed indexed)
     {
         this.indexed.put(indexedCount++, indexed);
+        this.plan = null;
         return this;
     }
 
     public final ContextFactory removeLastIndexed()
     {
         this.indexed.remove(--indexedCount);
+        this.plan = null;
         return this;
     }
 
@@ -130,6 +155,7 @@ public class ContextFactory
 
     public ContextFactory addParameter(CommandParameter param)
     {
+        this.plan = null;
         this.named.put(param.getName().toLowerCase(ENGLISH), param);
         for (String alias : param.getAliases())
         {
@@ -144,6 +170,7 @@ public class ContextFactory
 
     public ContextFactory removeParameter(String name)
     {
+        this.plan = null;
         CommandParameter param = this.named.remove(name.toLowerCase(ENGLISH));
         if (param != null)
         {
@@ -161,7 +188,9 @@ public class ContextFactory
 
     public CommandParameter getParameter(String name)
     {
-        return this.named.get(name.toLowerCase(ENGLISH));
+        ParsePlan plan = this.getPlan();
+        int slot = plan.getParameterSlot(name);
+        return slot == -1 ? null : plan.getParameter(slot);
     }
 
     public LinkedHashMap<String, CommandParameter> getParameters()
@@ -171,6 +200,7 @@ public class ContextFactory
 
     public ContextFactory addFlag(CommandFlag flag)
     {
+        this.plan = null;
         this.flags.put(flag.getName().toLowerCase(ENGLISH), flag);
         final String longName = flag.getLongName().toLowerCase(ENGLISH);
         if (!this.flags.containsKey(longName))
@@ -182,6 +212,7 @@ public class ContextFactory
 
     public ContextFactory removeFlag(String name)
     {
+        this.plan = null;
         CommandFlag flag = this.flags.remove(name.toLowerCase(ENGLISH));
         if (flag != null)
         {
@@ -199,7 +230,7 @@ public class ContextFactory
 
     public CommandFlag getFlag(String name)
     {
-        return this.flags.get(name.toLowerCase(ENGLISH));
+        return this.getPlan().getFlag(name);
     }
 
     public Set<CommandFlag> getFlags()
@@ -209,108 +240,168 @@ public class ContextFactory
 
     public void calculateArgBounds()
     {
-        this.bounds = new ArgBounds(new ArrayList<CommandParameterIndexed>(this.indexed.values()));
+        this.compile();
+    }
+
+    /**
+     * Freezes the current parameters and flags into an immutable {@link ParsePlan}.
+     * The plan is dropped and recompiled on the next parse whenever the factory gets modified or readers get registered.
+     *
+     * @return the compiled plan
+     */
+    public ParsePlan compile()
+    {
+        ParsePlan plan = new ParsePlan(new ArrayList<CommandParameterIndexed>(this.indexed.values()), this.named,
+                                       this.flags, this.readers);
+        this.plan = plan;
+        return plan;
+    }
+
+    public ParsePlan getPlan()
+    {
+        ParsePlan plan = this.plan;
+        if (plan == null || !plan.isCurrent())
+        {
+            plan = this.compile();
+        }
+        return plan;
     }
 
     public BaseCommandContext parse(BaseCommand command, BaseCommandSender sender, Stack<String> labels, String[] rawArgs)
     {
-        List<String> indexed = new LinkedList<String>();
-        Set<String> flags = new HashSet<String>();
-        Map<String, String> named = new LinkedHashMap<String, String>();
-        return new BaseCommandContext(command, sender, labels, indexed, flags, named, readCommand(rawArgs, flags, indexed,
-                                                                                              named));
+        return this.parse(command, sender, labels, CommandLine.of(rawArgs));
+    }
+
+    public BaseCommandContext parse(BaseCommand command, BaseCommandSender sender, Stack<String> labels, CommandLine args)
+    {
+        ParsePlan plan = this.getPlan();
+        BaseCommandContext context = this.pooled ? ParseArena.get().acquire() : new BaseCommandContext(null);
+        context.init(command, sender, labels, args, plan);
+        context.last = this.readCommand(plan, args, context);
+        return context;
     }
 
-    protected Type readCommand(String[] rawArgs, Set<String> flags, List<String> args, Map<String, String> rawParams)
+    /**
+     * Moves a context that got parsed for another command over to the given command of this factory.
+     * The tokens of the context are reused and only read again if the plans split them up differently.
+     *
+     * @param context the context
+     * @param command the command to bind the context to
+     */
+    public void rebind(BaseCommandContext context, BaseCommand command)
     {
-        if (rawArgs.length < 1)
+        ParsePlan plan = this.getPlan();
+        if (context.getPlan().hasSameLayout(plan))
         {
-            return Type.NOTHING;
+            context.rebind(command, plan);
+            return;
         }
-        LastType type = new LastType();
-        for (int offset = 0; offset < rawArgs.length; )
+        CommandLine args = context.getArgs();
+        context.init(command, context.getSender(), context.getLabels(), args, plan);
+        context.last = this.readCommand(plan, args, context);
+    }
+
+    /**
+     * Continues parsing a context that got rebased onto an extended line
+     *
+     * @param context    the context to continue
+     * @param args       the extended line
+     * @param checkpoint the state to continue from, it will be updated to the state before the new last token
+     */
+    void resume(BaseCommandContext context, CommandLine args, Checkpoint checkpoint)
+    {
+        context.rebase(args);
+        context.restore(checkpoint);
+        context.last = this.readCommand(this.getPlan(), args, context, checkpoint.token, checkpoint);
+    }
+
+    /**
+     * Parses a context and records the state before its last token to resume parsing later
+     */
+    BaseCommandContext parse(BaseCommand command, BaseCommandSender sender, Stack<String> labels, CommandLine args,
+                             Checkpoint checkpoint)
+    {
+        ParsePlan plan = this.getPlan();
+        BaseCommandContext context = new BaseCommandContext(null);
+        context.init(command, sender, labels, args, plan);
+        context.last = this.readCommand(plan, args, context, 0, checkpoint);
+        return context;
+    }
+
+    protected Type readCommand(ParsePlan plan, CommandLine args, BaseCommandContext context)
+    {
+        return this.readCommand(plan, args, context, 0, null);
+    }
+
+    private Type readCommand(ParsePlan plan, CommandLine args, BaseCommandContext context, int from,
+                             Checkpoint checkpoint)
+    {
+        Type last = context.last;
+        for (int offset = from; offset < args.size(); offset++)
         {
-            String rawArg = rawArgs[offset];
-            if (rawArg.isEmpty())
+            if (checkpoint != null && offset >= args.size() - 2)
+            {
+                // a named param may consume the last token too
+                context.last = last;
+                context.save(checkpoint, offset);
+            }
+            if (args.getLength(offset) == 0 && !args.isQuoted(offset))
             {
                 // ignore empty args except last when tabcomplete
-                if (offset == rawArgs.length - 1)
+                if (offset == args.size() - 1)
                 {
-                    args.add(rawArg);
+                    context.addRawIndexed(offset);
                 }
-                offset++;
-                type.last = ANY;
+                last = ANY;
             }
-            else if (rawArg.length() >= 1 && rawArg.charAt(0) == '-')
+            else if (!args.isQuoted(offset) && args.charAt(offset, 0) == '-')
             {
                 // reads a flag or indexed param
-                offset = readFlag(rawArg, args, flags, offset, type);
+                last = readFlag(plan, args, context, offset);
             }
             else
             {
                 // reads a named param or indexed param
-                offset = readRawParam(rawArgs, args, rawParams, offset, type);
+                last = readRawParam(plan, args, context, offset);
+                if (last == PARAM_VALUE)
+                {
+                    offset++; // the value got consumed as well
+                }
             }
         }
-
-        return type.last;
+        return last;
     }
 
-    private int readFlag(String rawArg, List<String> args, Set<String> flags, int offset, LastType type)
+    private Type readFlag(ParsePlan plan, CommandLine args, BaseCommandContext context, int offset)
     {
-        String flag = rawArg;
-        if (flag.charAt(0) == '-')
+        if (args.getLength(offset) == 1) // is there still a name?
         {
-            flag = flag.substring(1);
-        }
-        if (flag.isEmpty()) // is there still a name?
-        {
-            offset++;
-            args.add(rawArg);
-            type.last = FLAG_OR_INDEXED;
-            return offset;
+            context.addRawIndexed(offset);
+            return FLAG_OR_INDEXED;
         }
 
-        flag = flag.toLowerCase(ENGLISH); // lowercase flag
-
-        CommandFlag cmdFlag = this.flags.get(flag);
-        if (cmdFlag != null) // has flag ?
+        int flag = plan.getFlagIndexBySymbol(args.getSymbol(offset, 1));
+        if (flag != -1) // has flag ?
         {
-            flags.add(cmdFlag.getName()); // added flag
-            type.last = NOTHING;
+            context.addFlag(flag); // added flag
+            return NOTHING;
         }
-        else
-        {
-            type.last = FLAG_OR_INDEXED;
-            args.add(rawArg); // flag not found, adding it as an indexed param
-        }
-        offset++;
-        return offset;
+        context.addRawIndexed(offset); // flag not found, adding it as an indexed param
+        return FLAG_OR_INDEXED;
     }
 
-    private int readRawParam(String[] rawArgs, List<String> args, Map<String, String> rawParams, int offset,
-                             LastType type)
+    private Type readRawParam(ParsePlan plan, CommandLine args, BaseCommandContext context, int offset)
     {
-        String paramName = rawArgs[offset].toLowerCase(ENGLISH);
         // has alias named Param ?
-        CommandParameter param = named.get(paramName);
+        int slot = args.isQuoted(offset) ? -1 : plan.getParameterSlot(args.getSymbol(offset));
         // is named Param?
-        if (param != null && offset + 1 < rawArgs.length)
+        if (slot >= 0 && offset + 1 < args.size())
         {
-            StringBuilder paramValue = new StringBuilder();
-            offset++;
-            offset += readString(paramValue, rawArgs, offset);
             //added named param
-            rawParams.put(param.getName(), paramValue.toString());
-            type.last = PARAM_VALUE;
-        }
-        else // else is indexed param
-        {
-            StringBuilder arg = new StringBuilder();
-            offset += readString(arg, rawArgs, offset);
-            args.add(arg.toString());// added indexed param
-            type.last = INDEXED_OR_PARAM;
+            context.putRawNamed(slot, offset + 1);
+            return PARAM_VALUE;
         }
-        return offset;
+        context.addRawIndexed(offset);// added indexed param
+        return INDEXED_OR_PARAM;
     }
 }
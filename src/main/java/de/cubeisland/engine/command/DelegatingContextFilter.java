@@ -26,8 +26,23 @@ public abstract class DelegatingContextFilter
 {
     public abstract String delegateTo(BaseCommandContext context);
 
+    /**
+     * Moves the context over to the child it got delegated to.
+     * The context keeps its tokens and only gets read again by the plan of the child if needed.
+     *
+     * @param context the context of the delegating command
+     * @param child   the name of the child to delegate to
+     *
+     * @return the context for the child
+     */
     public BaseCommandContext filterContext(BaseCommandContext context, String child)
     {
+        BaseCommand target = context.getCommand().getChild(child);
+        if (target == null)
+        {
+            throw new IllegalArgumentException("Child delegation failed child does not exist: " + child);
+        }
+        target.getContextFactory().rebind(context, target);
         return context;
     }
 }
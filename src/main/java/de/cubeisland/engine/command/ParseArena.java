@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread-confined pool of {@link BaseCommandContext} instances and their parse buffers.
+ * Only used for commands whose {@link ContextFactory} is pooled.
+ *
+ * Contexts that get released on another thread, e.g. by the {@link AsyncCommandEngine},
+ * are pushed onto a lock-free stack and taken back by the owning thread once its pool runs empty.
+ */
+final class ParseArena
+{
+    private static final int MAX_FREE = 16;
+
+    private static final ThreadLocal<ParseArena> ARENA = new ThreadLocal<ParseArena>()
+    {
+        @Override
+        protected ParseArena initialValue()
+        {
+            return new ParseArena();
+        }
+    };
+
+    private final BaseCommandContext[] free = new BaseCommandContext[MAX_FREE];
+    private int freeCount = 0;
+    private final AtomicReference<BaseCommandContext> returned = new AtomicReference<BaseCommandContext>();
+    private final Thread owner;
+
+    private ParseArena()
+    {
+        this.owner = Thread.currentThread();
+    }
+
+    static ParseArena get()
+    {
+        return ARENA.get();
+    }
+
+    BaseCommandContext acquire()
+    {
+        if (this.freeCount == 0 && !this.takeReturned())
+        {
+            return new BaseCommandContext(this);
+        }
+        BaseCommandContext context = this.free[--this.freeCount];
+        this.free[this.freeCount] = null;
+        return context;
+    }
+
+    void free(BaseCommandContext context)
+    {
+        if (Thread.currentThread() != this.owner)
+        {
+            BaseCommandContext head;
+            do
+            {
+                head = this.returned.get();
+                context.nextReturned = head;
+            }
+            while (!this.returned.compareAndSet(head, context));
+        }
+        else if (this.freeCount < MAX_FREE)
+        {
+            this.free[this.freeCount++] = context;
+        }
+    }
+
+    /**
+     * Moves the contexts released by other threads into the pool
+     *
+     * @return false if there were none
+     */
+    private boolean takeReturned()
+    {
+        BaseCommandContext context = this.returned.getAndSet(null);
+        if (context == null)
+        {
+            return false;
+        }
+        while (context != null && this.freeCount < MAX_FREE)
+        {
+            BaseCommandContext next = context.nextReturned;
+            context.nextReturned = null;
+            this.free[this.freeCount++] = context;
+            context = next;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,390 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import de.cubeisland.engine.command.reader.ArgumentReader;
+import de.cubeisland.engine.command.reader.CompositeReader;
+import de.cubeisland.engine.command.reader.ReaderRegistry;
+
+/**
+ * An immutable snapshot of a {@link ContextFactory} prepared for parsing.
+ * All parameters are laid out in arrays indexed by their slot and carry their readers,
+ * so parsing only has to walk the tokens. The readers are taken from the registry the plan was compiled with.
+ */
+public final class ParsePlan
+{
+    private final CommandParameterIndexed[] indexed;
+    private final ArgumentReader[][] indexedReaders;
+    /**
+     * The amount of tokens read by each indexed parameter
+     */
+    private final int[] arities;
+    /**
+     * The position of the first token of each indexed parameter
+     */
+    private final int[] positions;
+    /**
+     * The indexed parameter reading each token position
+     */
+    private final int[] slots;
+    private final boolean greedy;
+
+    private final CommandParameter[] params;
+    private final ArgumentReader[] paramReaders;
+    private final SymbolMap<Integer> paramTable = new SymbolMap<Integer>();
+
+    private final CommandFlag[] flags;
+    private final SymbolMap<CommandFlag> flagTable = new SymbolMap<CommandFlag>();
+    /**
+     * The bit of each flag by the symbols of its names
+     */
+    private final SymbolMap<Integer> flagBits = new SymbolMap<Integer>();
+
+    private final ArgBounds bounds;
+    private final ReaderRegistry readers;
+    private final int generation;
+
+    ParsePlan(List<CommandParameterIndexed> indexed, Map<String, CommandParameter> named,
+              Map<String, CommandFlag> flags, ReaderRegistry readers)
+    {
+        this.readers = readers;
+        this.generation = readers.getGeneration();
+        this.indexed = indexed.toArray(new CommandParameterIndexed[indexed.size()]);
+        this.indexedReaders = new ArgumentReader[this.indexed.length][];
+        for (int i = 0; i < this.indexed.length; i++)
+        {
+            Class<?>[] types = this.indexed[i].getType();
+            this.indexedReaders[i] = new ArgumentReader[types.length];
+            for (int j = 0; j < types.length; j++)
+            {
+                this.indexedReaders[i][j] = resolve(readers, types[j], this.indexed[i]);
+            }
+        }
+        this.greedy = this.indexed.length > 0 && this.indexed[this.indexed.length - 1].getCount() == -1;
+        this.arities = new int[this.indexed.length];
+        this.positions = new int[this.indexed.length];
+        int tokens = 0;
+        for (int i = 0; i < this.indexed.length; i++)
+        {
+            this.arities[i] = arity(this.indexed[i], this.indexedReaders[i]);
+            this.positions[i] = tokens;
+            tokens += this.arities[i];
+        }
+        this.slots = new int[tokens];
+        for (int i = 0; i < this.indexed.length; i++)
+        {
+            Arrays.fill(this.slots, this.positions[i], this.positions[i] + this.arities[i], i);
+        }
+        this.bounds = new ArgBounds(indexed, this.arities);
+
+        Set<CommandParameter> distinctParams = new LinkedHashSet<CommandParameter>(named.values());
+        this.params = distinctParams.toArray(new CommandParameter[distinctParams.size()]);
+        this.paramReaders = new ArgumentReader[this.params.length];
+        Map<CommandParameter, Integer> slots = new HashMap<CommandParameter, Integer>();
+        for (int i = 0; i < this.params.length; i++)
+        {
+            this.paramReaders[i] = resolve(readers, this.params[i].getType(), this.params[i]);
+            slots.put(this.params[i], i);
+        }
+        SymbolTable symbols = SymbolTable.global();
+        for (Entry<String, CommandParameter> entry : named.entrySet())
+        {
+            this.paramTable.put(symbols.intern(entry.getKey()), slots.get(entry.getValue()));
+        }
+
+        Set<CommandFlag> distinctFlags = new LinkedHashSet<CommandFlag>(flags.values());
+        this.flags = distinctFlags.toArray(new CommandFlag[distinctFlags.size()]);
+        for (Entry<String, CommandFlag> entry : flags.entrySet())
+        {
+            int symbol = symbols.intern(entry.getKey());
+            this.flagTable.put(symbol, entry.getValue());
+            this.flagBits.put(symbol, this.getFlagIndex(entry.getValue()));
+        }
+    }
+
+    /**
+     * Resolves the reader of a parameter type in the registry of the plan.
+     * Readers are only checked here, so a type may be readable with the registry of one manager only.
+     *
+     * @param param the parameter for the error message
+     */
+    private static ArgumentReader resolve(ReaderRegistry readers, Class<?> type, Object param)
+    {
+        ArgumentReader reader = readers.resolveReader(type);
+        if (reader == null)
+        {
+            String name = param instanceof CommandParameter ? "named parameter '" + ((CommandParameter)param).getName()
+                : "indexed parameter '" + ((CommandParameterIndexed)param).getLabels()[0];
+            throw new IllegalStateException("No reader found for " + type.getName() + " of the " + name + "'!");
+        }
+        return reader;
+    }
+
+    /**
+     * Returns whether the readers of this plan are still the registered ones
+     *
+     * @return false if readers got registered or removed since this plan was created
+     */
+    public boolean isCurrent()
+    {
+        return this.generation == this.readers.getGeneration();
+    }
+
+    private static int arity(CommandParameterIndexed indexed, ArgumentReader[] readers)
+    {
+        if (readers.length == 1 && readers[0] instanceof CompositeReader)
+        {
+            if (indexed.getCount() == -1)
+            {
+                throw new IllegalStateException("The greedy parameter '" + indexed.getLabels()[0] + "' can not read a composite type!");
+            }
+            return ((CompositeReader)readers[0]).getArity();
+        }
+        for (ArgumentReader reader : readers)
+        {
+            if (reader instanceof CompositeReader)
+            {
+                throw new IllegalStateException("The parameter '" + indexed.getLabels()[0] + "' can not read a composite type among others!");
+            }
+        }
+        return 1;
+    }
+
+    public ArgBounds getBounds()
+    {
+        return bounds;
+    }
+
+    public int getIndexedCount()
+    {
+        return this.indexed.length;
+    }
+
+    /**
+     * Returns the slot of the indexed parameter reading the given position
+     *
+     * @param position the position of the indexed argument
+     *
+     * @return the slot or -1 if no parameter reads this position
+     */
+    public int getIndexedSlot(int position)
+    {
+        if (position < this.slots.length)
+        {
+            return this.slots[position];
+        }
+        return this.greedy ? this.indexed.length - 1 : -1;
+    }
+
+    /**
+     * Returns the position of the first token of an indexed value.
+     * Without composite parameters the index of a value and its position are the same.
+     *
+     * @param index the index of the value
+     *
+     * @return the position or -1 if no parameter reads this value
+     */
+    public int getIndexedPosition(int index)
+    {
+        if (index < 0)
+        {
+            return -1;
+        }
+        if (index < this.positions.length)
+        {
+            return this.positions[index];
+        }
+        return this.greedy ? this.slots.length + index - this.positions.length : -1;
+    }
+
+    /**
+     * Returns the index of the indexed value a token belongs to, the inverse of {@link #getIndexedPosition(int)}
+     *
+     * @param position the position of the token
+     *
+     * @return the index or -1 if no parameter reads this position
+     */
+    public int getIndexedIndex(int position)
+    {
+        if (position < 0)
+        {
+            return -1;
+        }
+        if (position < this.slots.length)
+        {
+            return this.slots[position];
+        }
+        return this.greedy ? this.positions.length + position - this.slots.length : -1;
+    }
+
+    /**
+     * Returns the amount of tokens read by the indexed parameter in the given slot
+     *
+     * @param slot the slot
+     *
+     * @return the arity of its reader
+     */
+    public int getIndexedArity(int slot)
+    {
+        return this.arities[slot];
+    }
+
+    public CommandParameterIndexed getIndexed(int slot)
+    {
+        return this.indexed[slot];
+    }
+
+    public ArgumentReader[] getIndexedReaders(int slot)
+    {
+        return this.indexedReaders[slot];
+    }
+
+    public int getParameterCount()
+    {
+        return this.params.length;
+    }
+
+    public CommandParameter getParameter(int slot)
+    {
+        return this.params[slot];
+    }
+
+    public ArgumentReader getParameterReader(int slot)
+    {
+        return this.paramReaders[slot];
+    }
+
+    /**
+     * Returns the slot of the named parameter with the given name or alias
+     *
+     * @param name the name, case is ignored
+     *
+     * @return the slot or -1 if there is no such parameter
+     */
+    public int getParameterSlot(String name)
+    {
+        return this.getParameterSlot(SymbolTable.global().lookup(name));
+    }
+
+    /**
+     * Returns the slot of the named parameter with the given symbol
+     *
+     * @param symbol the symbol of the name or an alias
+     *
+     * @return the slot or -1 if there is no such parameter
+     */
+    public int getParameterSlot(int symbol)
+    {
+        Integer slot = this.paramTable.get(symbol);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns whether the tokens of a line are split up the same by this plan and the given one.
+     * This is the case if both only know indexed parameters.
+     *
+     * @param other the other plan
+     *
+     * @return true if the raw arguments read by one plan are valid for the other
+     */
+    public boolean hasSameLayout(ParsePlan other)
+    {
+        return this == other || (this.params.length == 0 && this.flags.length == 0
+            && other.params.length == 0 && other.flags.length == 0);
+    }
+
+    public int getFlagCount()
+    {
+        return this.flags.length;
+    }
+
+    public CommandFlag getFlag(int index)
+    {
+        return this.flags[index];
+    }
+
+    /**
+     * Returns the bit index of the given flag in this plan
+     *
+     * @param flag the flag
+     *
+     * @return the index or -1 if the flag is not part of this plan
+     */
+    public int getFlagIndex(CommandFlag flag)
+    {
+        for (int i = 0; i < this.flags.length; i++)
+        {
+            if (this.flags[i] == flag)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the flag with the given name or long name
+     *
+     * @param name the name, case is ignored
+     *
+     * @return the flag or null if there is no such flag
+     */
+    public CommandFlag getFlag(String name)
+    {
+        return this.getFlagBySymbol(SymbolTable.global().lookup(name));
+    }
+
+    /**
+     * Returns the flag with the given symbol
+     *
+     * @param symbol the symbol of the name or long name
+     *
+     * @return the flag or null if there is no such flag
+     */
+    public CommandFlag getFlagBySymbol(int symbol)
+    {
+        return this.flagTable.get(symbol);
+    }
+
+    /**
+     * Returns the bit index of the flag with the given symbol in this plan
+     *
+     * @param symbol the symbol of the name or long name
+     *
+     * @return the index or -1 if there is no such flag
+     */
+    public int getFlagIndexBySymbol(int symbol)
+    {
+        Integer index = this.flagBits.get(symbol);
+        return index == null ? -1 : index;
+    }
+
+}
@@ -0,0 +1,322 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits command calls based on token buckets per sender.
+ * A sender has a bucket for all of its commands, one per {@link CommandOwner} and one per command.
+ * Each bucket is a single atomic long holding the time at which it would be full again,
+ * so admitting a call never locks.
+ */
+public class RateLimiter
+{
+    private static final long EPOCH = System.nanoTime();
+    private static final UUID NO_ID = new UUID(0L, 0L);
+    /**
+     * Idle senders get purged after this many calls
+     */
+    private static final int PURGE_INTERVAL = 4096;
+
+    private final ConcurrentMap<UUID, Buckets> senders = new ConcurrentHashMap<UUID, Buckets>();
+    private final ConcurrentMap<CommandOwner, CommandRateLimit> ownerLimits = new ConcurrentHashMap<CommandOwner, CommandRateLimit>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile CommandRateLimit senderLimit = null;
+
+    /**
+     * Sets the limit for all commands of a sender together
+     *
+     * @param limit the limit or null
+     */
+    public void setSenderLimit(CommandRateLimit limit)
+    {
+        this.senderLimit = limit;
+    }
+
+    public CommandRateLimit getSenderLimit()
+    {
+        return senderLimit;
+    }
+
+    /**
+     * Sets the limit for all commands of an owner together
+     *
+     * @param owner the owner
+     * @param limit the limit or null to remove it
+     */
+    public void setOwnerLimit(CommandOwner owner, CommandRateLimit limit)
+    {
+        if (limit == null)
+        {
+            this.ownerLimits.remove(owner);
+        }
+        else
+        {
+            this.ownerLimits.put(owner, limit);
+        }
+    }
+
+    public CommandRateLimit getOwnerLimit(CommandOwner owner)
+    {
+        return owner == null ? null : this.ownerLimits.get(owner);
+    }
+
+    /**
+     * Takes a token from every bucket that limits the given call.
+     * If any bucket rejects the call, the tokens taken from the others are given back.
+     *
+     * @param sender  the sender
+     * @param command the command
+     *
+     * @return 0 if the call is admitted or the nanoseconds until it would be
+     */
+    public long acquire(BaseCommandSender sender, BaseCommand command)
+    {
+        if (command instanceof AliasCommand)
+        {
+            command = ((AliasCommand)command).getTarget();
+        }
+        CommandRateLimit senderLimit = this.senderLimit;
+        CommandRateLimit ownerLimit = this.getOwnerLimit(command.getOwner());
+        CommandRateLimit commandLimit = command.getRateLimit();
+        if (senderLimit == null && ownerLimit == null && commandLimit == null)
+        {
+            return 0;
+        }
+        if (this.calls.incrementAndGet() % PURGE_INTERVAL == 0)
+        {
+            this.purge();
+        }
+        Buckets buckets = this.getBuckets(sender);
+        final long now = System.nanoTime() - EPOCH;
+        if (senderLimit != null)
+        {
+            long wait = take(buckets.all, senderLimit, now);
+            if (wait > 0)
+            {
+                return wait;
+            }
+        }
+        AtomicLong ownerBucket = null;
+        if (ownerLimit != null)
+        {
+            ownerBucket = buckets.get(command.getOwner());
+            long wait = take(ownerBucket, ownerLimit, now);
+            if (wait > 0)
+            {
+                refund(buckets.all, senderLimit);
+                return wait;
+            }
+        }
+        if (commandLimit != null)
+        {
+            long wait = take(buckets.get(command), commandLimit, now);
+            if (wait > 0)
+            {
+                // a rejected call must not use up the quota of the other buckets
+                refund(ownerBucket, ownerLimit);
+                refund(buckets.all, senderLimit);
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gives back the tokens {@link #acquire} took for a call that got rejected afterwards,
+     * e.g. by the limit of a subcommand
+     *
+     * @param sender  the sender
+     * @param command the command passed to acquire
+     */
+    public void refund(BaseCommandSender sender, BaseCommand command)
+    {
+        if (command instanceof AliasCommand)
+        {
+            command = ((AliasCommand)command).getTarget();
+        }
+        CommandRateLimit senderLimit = this.senderLimit;
+        CommandRateLimit ownerLimit = this.getOwnerLimit(command.getOwner());
+        CommandRateLimit commandLimit = command.getRateLimit();
+        if (senderLimit == null && ownerLimit == null && commandLimit == null)
+        {
+            return;
+        }
+        Buckets buckets = this.getBuckets(sender);
+        if (commandLimit != null)
+        {
+            refund(buckets.get(command), commandLimit);
+        }
+        if (ownerLimit != null)
+        {
+            refund(buckets.get(command.getOwner()), ownerLimit);
+        }
+        refund(buckets.all, senderLimit);
+    }
+
+    /**
+     * Takes a token from the bucket of the command only
+     *
+     * @param sender  the sender
+     * @param command the command
+     *
+     * @return 0 if the call is admitted or the nanoseconds until it would be
+     */
+    public long acquireCommand(BaseCommandSender sender, BaseCommand command)
+    {
+        if (command instanceof AliasCommand)
+        {
+            command = ((AliasCommand)command).getTarget();
+        }
+        CommandRateLimit commandLimit = command.getRateLimit();
+        if (commandLimit == null)
+        {
+            return 0;
+        }
+        return take(this.getBuckets(sender).get(command), commandLimit, System.nanoTime() - EPOCH);
+    }
+
+    private Buckets getBuckets(BaseCommandSender sender)
+    {
+        UUID id = sender.getUniqueId();
+        if (id == null)
+        {
+            id = NO_ID;
+        }
+        Buckets buckets = this.senders.get(id);
+        if (buckets == null)
+        {
+            buckets = new Buckets();
+            Buckets existing = this.senders.putIfAbsent(id, buckets);
+            if (existing != null)
+            {
+                buckets = existing;
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Takes a token from the bucket
+     *
+     * @return 0 if a token got taken or the nanoseconds until one is available
+     */
+    private static long take(AtomicLong bucket, CommandRateLimit limit, long now)
+    {
+        while (true)
+        {
+            long full = bucket.get();
+            long next = Math.max(full, now) + limit.getInterval();
+            long wait = next - now - limit.getPeriod();
+            if (wait > 0)
+            {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, next))
+            {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token that got taken from the bucket
+     */
+    private static void refund(AtomicLong bucket, CommandRateLimit limit)
+    {
+        if (limit != null)
+        {
+            bucket.addAndGet(-limit.getInterval());
+        }
+    }
+
+    /**
+     * Drops the buckets of senders whose buckets are all full again
+     */
+    public void purge()
+    {
+        final long now = System.nanoTime() - EPOCH;
+        Iterator<Map.Entry<UUID, Buckets>> it = this.senders.entrySet().iterator();
+        while (it.hasNext())
+        {
+            if (it.next().getValue().isFull(now))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all buckets of the given sender
+     *
+     * @param sender the sender
+     */
+    public void reset(BaseCommandSender sender)
+    {
+        this.senders.remove(sender.getUniqueId() == null ? NO_ID : sender.getUniqueId());
+    }
+
+    private static final class Buckets
+    {
+        private final AtomicLong all = new AtomicLong();
+        private final ConcurrentMap<Object, AtomicLong> buckets = new ConcurrentHashMap<Object, AtomicLong>();
+
+        private AtomicLong get(Object key)
+        {
+            AtomicLong bucket = this.buckets.get(key);
+            if (bucket == null)
+            {
+                bucket = new AtomicLong();
+                AtomicLong existing = this.buckets.putIfAbsent(key, bucket);
+                if (existing != null)
+                {
+                    bucket = existing;
+                }
+            }
+            return bucket;
+        }
+
+        private boolean isFull(long now)
+        {
+            if (this.all.get() > now)
+            {
+                return false;
+            }
+            for (AtomicLong bucket : this.buckets.values())
+            {
+                if (bucket.get() > now)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
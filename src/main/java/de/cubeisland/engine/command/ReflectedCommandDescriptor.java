@@ -27,9 +27,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 import de.cubeisland.engine.command.completer.Completer;
+import de.cubeisland.engine.command.completer.CompleterRegistry;
 import de.cubeisland.engine.command.completer.IndexedParameterCompleter;
+import de.cubeisland.engine.command.reflected.CommandInvoker;
 import de.cubeisland.engine.command.reflected.ReflectedCommand;
 import de.cubeisland.engine.command.reflected.annotation.Alias;
+import de.cubeisland.engine.command.reflected.annotation.AsyncCall;
 import de.cubeisland.engine.command.reflected.annotation.Command;
 import de.cubeisland.engine.command.reflected.annotation.Flag;
 import de.cubeisland.engine.command.reflected.annotation.Flags;
@@ -39,6 +42,7 @@ import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
 import de.cubeisland.engine.command.reflected.annotation.NamedParams;
 import de.cubeisland.engine.command.reflected.annotation.Param;
 import de.cubeisland.engine.command.reflected.annotation.Permission;
+import de.cubeisland.engine.command.reflected.annotation.RateLimit;
 import de.cubeisland.engine.command.reflected.annotation.RestrictUsage;
 
 public class ReflectedCommandDescriptor implements CommandDescriptor
@@ -60,12 +64,22 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
     private ContextFactory contextFactory;
     private Object holder;
     private Method method;
+    private CommandInvoker invoker;
     private CommandOwner owner;
     private Class<? extends BaseCommandSender>[] restrictUsage;
     private BaseCommand parent;
+    private boolean asynchronous = false;
+    private CommandRateLimit rateLimit;
 
     private DelegatingContextFilter delegation;
 
+    private boolean lazy = false;
+    private boolean pending = false;
+    private IndexedParams iParam;
+    private NamedParams nParam;
+    private Flags flags;
+    private CompleterRegistry completers = CompleterRegistry.global();
+
     public ReflectedCommandDescriptor newCommand(Command command, Permission permission, String defaultName,
                                                  PermissionProvider permissionProvider)
     {
@@ -85,9 +99,46 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
 
 
 
+    /**
+     * Enables the stub mode for this descriptor.
+     * The parameters, flags and completers given to {@link #context} are then only created
+     * once the command gets executed or completed for the first time.
+     *
+     * @param lazy whether to create the context lazily
+     *
+     * @return fluent interface
+     */
+    public ReflectedCommandDescriptor lazy(boolean lazy)
+    {
+        this.lazy = lazy;
+        return this;
+    }
+
+    public ReflectedCommandDescriptor completers(CompleterRegistry completers)
+    {
+        this.completers = completers;
+        return this;
+    }
+
     public ReflectedCommandDescriptor context(IndexedParams iParam, NamedParams nParam, Flags flags)
     {
-        this.contextFactory = newContextFactory();
+        if (this.lazy)
+        {
+            this.iParam = iParam;
+            this.nParam = nParam;
+            this.flags = flags;
+            this.pending = true;
+        }
+        else
+        {
+            this.contextFactory = this.buildContext(iParam, nParam, flags);
+        }
+        return this;
+    }
+
+    private ContextFactory buildContext(IndexedParams iParam, NamedParams nParam, Flags flags)
+    {
+        ContextFactory contextFactory = newContextFactory();
 
         if (iParam != null)
         {
@@ -170,7 +221,7 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
             }
         }
 
-        return this;
+        return contextFactory;
     }
 
     protected ContextFactory newContextFactory()
@@ -199,14 +250,7 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
         {
             return null;
         }
-        try
-        {
-            return completerClass.newInstance();
-        }
-        catch (Exception ex)
-        {
-            throw new IllegalArgumentException("Failed to create the completer " + completerClass.getName(), ex);
-        }
+        return this.completers.getCompleter(completerClass);
     }
 
     public ReflectedCommandDescriptor reflect(Object holder, Method method)
@@ -216,6 +260,12 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
         return this;
     }
 
+    public ReflectedCommandDescriptor invoker(CommandInvoker invoker)
+    {
+        this.invoker = invoker;
+        return this;
+    }
+
     public ReflectedCommandDescriptor alias(Alias alias)
     {
         if (alias != null)
@@ -276,8 +326,16 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
     }
 
     @Override
-    public ContextFactory getContextFactory()
+    public synchronized ContextFactory getContextFactory()
     {
+        if (this.pending)
+        {
+            this.contextFactory = this.buildContext(this.iParam, this.nParam, this.flags);
+            this.iParam = null;
+            this.nParam = null;
+            this.flags = null;
+            this.pending = false;
+        }
         return contextFactory;
     }
 
@@ -291,6 +349,16 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
         return method;
     }
 
+    /**
+     * Returns the invoker to call the method with, if null the method is called through reflection
+     *
+     * @return the invoker or null
+     */
+    public CommandInvoker getInvoker()
+    {
+        return invoker;
+    }
+
     @Override
     public CommandOwner getOwner()
     {
@@ -315,6 +383,38 @@ public class ReflectedCommandDescriptor implements CommandDescriptor
         return this;
     }
 
+    public ReflectedCommandDescriptor async(AsyncCall annotation)
+    {
+        this.asynchronous = annotation != null;
+        return this;
+    }
+
+    @Override
+    public boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    public ReflectedCommandDescriptor rateLimit(RateLimit annotation)
+    {
+        if (annotation != null)
+        {
+            this.rateLimit = new CommandRateLimit(annotation.permits(), annotation.period(), annotation.unit());
+        }
+        return this;
+    }
+
+    public ReflectedCommandDescriptor rateLimit(CommandRateLimit rateLimit)
+    {
+        this.rateLimit = rateLimit;
+        return this;
+    }
+
+    @Override
+    public CommandRateLimit getRateLimit()
+    {
+        return rateLimit;
+    }
+
     // TODO loggable
-    // TODO asnyc
 }
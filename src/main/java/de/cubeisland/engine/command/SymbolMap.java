@@ -0,0 +1,145 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps symbol ids of the {@link SymbolTable} to values.
+ * Modifications copy the arrays and publish them, lookups never lock.
+ *
+ * @param <V> the value type
+ */
+public final class SymbolMap<V>
+{
+    private volatile Entries entries = new Entries(new int[0], new Object[0]);
+
+    @SuppressWarnings("unchecked")
+    public V get(int symbol)
+    {
+        if (symbol == SymbolTable.UNKNOWN)
+        {
+            return null;
+        }
+        Entries entries = this.entries;
+        int i = Arrays.binarySearch(entries.symbols, symbol);
+        if (i < 0)
+        {
+            return null;
+        }
+        return (V)entries.values[i];
+    }
+
+    public boolean containsKey(int symbol)
+    {
+        return this.get(symbol) != null;
+    }
+
+    public synchronized V put(int symbol, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Null values are not allowed!");
+        }
+        Entries entries = this.entries;
+        int i = Arrays.binarySearch(entries.symbols, symbol);
+        if (i >= 0)
+        {
+            Object[] values = entries.values.clone();
+            @SuppressWarnings("unchecked")
+            V old = (V)values[i];
+            values[i] = value;
+            this.entries = new Entries(entries.symbols, values);
+            return old;
+        }
+        i = -(i + 1);
+        int size = entries.symbols.length;
+        int[] symbols = new int[size + 1];
+        Object[] values = new Object[size + 1];
+        System.arraycopy(entries.symbols, 0, symbols, 0, i);
+        System.arraycopy(entries.values, 0, values, 0, i);
+        symbols[i] = symbol;
+        values[i] = value;
+        System.arraycopy(entries.symbols, i, symbols, i + 1, size - i);
+        System.arraycopy(entries.values, i, values, i + 1, size - i);
+        this.entries = new Entries(symbols, values);
+        return null;
+    }
+
+    public synchronized V remove(int symbol)
+    {
+        Entries entries = this.entries;
+        int i = Arrays.binarySearch(entries.symbols, symbol);
+        if (i < 0)
+        {
+            return null;
+        }
+        int size = entries.symbols.length;
+        int[] symbols = new int[size - 1];
+        Object[] values = new Object[size - 1];
+        System.arraycopy(entries.symbols, 0, symbols, 0, i);
+        System.arraycopy(entries.values, 0, values, 0, i);
+        System.arraycopy(entries.symbols, i + 1, symbols, i, size - i - 1);
+        System.arraycopy(entries.values, i + 1, values, i, size - i - 1);
+        @SuppressWarnings("unchecked")
+        V old = (V)entries.values[i];
+        this.entries = new Entries(symbols, values);
+        return old;
+    }
+
+    public int size()
+    {
+        return this.entries.symbols.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values()
+    {
+        Object[] values = this.entries.values;
+        List<V> list = new ArrayList<V>(values.length);
+        for (Object value : values)
+        {
+            list.add((V)value);
+        }
+        return list;
+    }
+
+    private static final class Entries
+    {
+        private final int[] symbols;
+        private final Object[] values;
+
+        private Entries(int[] symbols, Object[] values)
+        {
+            this.symbols = symbols;
+            this.values = values;
+        }
+    }
+}
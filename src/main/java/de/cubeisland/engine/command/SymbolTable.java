@@ -0,0 +1,236 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+/**
+ * A case-insensitive table of interned names.
+ * Every name gets an int id when it is interned. Tokens can then be looked up without allocating:
+ * the hash is computed on the lowercased chars in place.
+ *
+ * Interning inserts in place and publishes the new size, the table is only copied when it has to grow.
+ * Lookups never lock.
+ */
+public final class SymbolTable
+{
+    public static final int UNKNOWN = -1;
+
+    private static final SymbolTable GLOBAL = new SymbolTable();
+
+    private volatile Table table = new Table(16);
+
+    public static SymbolTable global()
+    {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the id of the given name and interns it if needed
+     *
+     * @param name the name
+     *
+     * @return the id
+     */
+    public synchronized int intern(String name)
+    {
+        Table table = this.table;
+        int id = table.find(name, 0, name.length(), hash(name, 0, name.length()));
+        if (id != UNKNOWN)
+        {
+            return id;
+        }
+        id = table.size;
+        if ((id + 1) * 2 > table.entries.length)
+        {
+            table = table.grow();
+            this.table = table;
+        }
+        table.add(fold(name), id);
+        return id;
+    }
+
+    /**
+     * Returns the id of the given name
+     *
+     * @param name the name
+     *
+     * @return the id or {@link #UNKNOWN} if the name was never interned
+     */
+    public int lookup(CharSequence name)
+    {
+        return this.lookup(name, 0, name.length());
+    }
+
+    /**
+     * Returns the id of a region of the given source
+     *
+     * @param source the source
+     * @param start  the start of the region
+     * @param end    the end of the region
+     *
+     * @return the id or {@link #UNKNOWN} if the name was never interned
+     */
+    public int lookup(CharSequence source, int start, int end)
+    {
+        return this.table.find(source, start, end, hash(source, start, end));
+    }
+
+    /**
+     * Returns the lowercased name of the given id
+     */
+    public String getName(int id)
+    {
+        Table table = this.table;
+        if (id < table.size)
+        {
+            return table.names[id];
+        }
+        // the id was found while it got interned
+        synchronized (this)
+        {
+            return this.table.names[id];
+        }
+    }
+
+    private static int hash(CharSequence source, int start, int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + Character.toLowerCase(source.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String fold(String name)
+    {
+        char[] chars = new char[name.length()];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = Character.toLowerCase(name.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    private static final class Entry
+    {
+        private final String name;
+        private final int id;
+
+        private Entry(String name, int id)
+        {
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    /**
+     * An open addressing table that is kept at most half full.
+     * Entries are immutable, so a lookup racing an insert either sees a complete entry or none.
+     */
+    private static final class Table
+    {
+        private final Entry[] entries;
+        private final String[] names;
+        /**
+         * the amount of published names, written once per interned name
+         */
+        private volatile int size;
+
+        private Table(int capacity)
+        {
+            this.entries = new Entry[capacity];
+            this.names = new String[capacity / 2];
+        }
+
+        private int find(CharSequence source, int start, int end, int hash)
+        {
+            final Entry[] entries = this.entries;
+            final int mask = entries.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask)
+            {
+                Entry entry = entries[i];
+                if (entry == null)
+                {
+                    return UNKNOWN;
+                }
+                if (matches(entry.name, source, start, end))
+                {
+                    return entry.id;
+                }
+            }
+        }
+
+        private static boolean matches(String key, CharSequence source, int start, int end)
+        {
+            if (key.length() != end - start)
+            {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++)
+            {
+                if (key.charAt(i) != Character.toLowerCase(source.charAt(start + i)))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns a copy of this table with twice the capacity
+         */
+        private Table grow()
+        {
+            Table table = new Table(this.entries.length * 2);
+            final int size = this.size;
+            System.arraycopy(this.names, 0, table.names, 0, size);
+            for (Entry entry : this.entries)
+            {
+                if (entry != null)
+                {
+                    table.insert(entry);
+                }
+            }
+            table.size = size;
+            return table;
+        }
+
+        private void add(String name, int id)
+        {
+            this.names[id] = name;
+            this.insert(new Entry(name, id));
+            this.size = id + 1;
+        }
+
+        private void insert(Entry entry)
+        {
+            final int mask = this.entries.length - 1;
+            int i = hash(entry.name, 0, entry.name.length()) & mask;
+            while (this.entries[i] != null)
+            {
+                i = (i + 1) & mask;
+            }
+            this.entries[i] = entry;
+        }
+    }
+}
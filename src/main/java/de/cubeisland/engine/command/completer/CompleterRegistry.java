@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.completer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out completers by their class.
+ * Completers annotated with {@link Stateless} or registered explicitly are created once and shared,
+ * all other completers get a new instance for every parameter.
+ */
+public final class CompleterRegistry
+{
+    private static final CompleterRegistry GLOBAL = new CompleterRegistry();
+
+    private final ConcurrentMap<Class<? extends Completer>, Completer> shared = new ConcurrentHashMap<Class<? extends Completer>, Completer>();
+
+    public static CompleterRegistry global()
+    {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the completer of the given class
+     *
+     * @param completerClass the class
+     *
+     * @return the shared instance or a new one if the completer is not stateless
+     */
+    public <T extends Completer> T getCompleter(Class<T> completerClass)
+    {
+        Completer completer = this.shared.get(completerClass);
+        if (completer == null)
+        {
+            completer = newInstance(completerClass);
+            if (!completerClass.isAnnotationPresent(Stateless.class))
+            {
+                return completerClass.cast(completer);
+            }
+            Completer previous = this.shared.putIfAbsent(completerClass, completer);
+            if (previous != null)
+            {
+                completer = previous;
+            }
+        }
+        return completerClass.cast(completer);
+    }
+
+    /**
+     * Registers an instance to be shared, e.g. a completer with an expensive dictionary.
+     *
+     * @param completer the completer
+     */
+    public void register(Completer completer)
+    {
+        this.shared.put(completer.getClass(), completer);
+    }
+
+    public void remove(Class<? extends Completer> completerClass)
+    {
+        this.shared.remove(completerClass);
+    }
+
+    private static Completer newInstance(Class<? extends Completer> completerClass)
+    {
+        try
+        {
+            return completerClass.newInstance();
+        }
+        catch (Exception ex)
+        {
+            throw new IllegalArgumentException("Failed to create the completer " + completerClass.getName(), ex);
+        }
+    }
+}
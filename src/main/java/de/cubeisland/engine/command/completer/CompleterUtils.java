@@ -32,6 +32,7 @@ import de.cubeisland.engine.command.CommandFlag;
 import de.cubeisland.engine.command.CommandParameter;
 import de.cubeisland.engine.command.CommandParameterIndexed;
 import de.cubeisland.engine.command.ContextFactory;
+import de.cubeisland.engine.command.ParsePlan;
 import de.cubeisland.engine.command.StringUtils;
 import de.cubeisland.engine.command.Type;
 
@@ -52,8 +53,8 @@ public class CompleterUtils
             return tabCompleteParamValue(context, cFactory);
         }
         List<String> result = new ArrayList<String>();
-        List<Object> args = context.getIndexed();
-        String lastArg = args.get(args.size() - 1).toString();
+        List<String> args = context.getRawIndexed();
+        String lastArg = args.get(args.size() - 1);
         if (lastType == FLAG_OR_INDEXED)
         {
             tabCompleteFlags(context, cFactory, result, lastArg);
@@ -122,9 +123,12 @@ public class CompleterUtils
     private static void tabCompleteIndexed(BaseCommandContext context, ContextFactory cFactory, List<String> result,
                                            int index, String last)
     {
-        CommandParameterIndexed indexed = cFactory.getIndexed(index);
-        if (indexed != null)
+        // composite parameters read several tokens, the tokens after a greedy one are not completed
+        ParsePlan plan = cFactory.getPlan();
+        int slot = plan.getIndexedSlot(index);
+        if (slot != -1 && index < plan.getIndexedPosition(slot) + plan.getIndexedArity(slot))
         {
+            CommandParameterIndexed indexed = plan.getIndexed(slot);
             Completer indexedCompleter = indexed.getCompleter();
             if (indexedCompleter != null)
             {
@@ -142,7 +146,7 @@ public class CompleterUtils
         }
         for (CommandFlag commandFlag : cFactory.getFlags())
         {
-            if (!context.hasFlag(commandFlag.getName()) && StringUtils.startsWithIgnoreCase(commandFlag.getLongName(),
+            if (!context.hasFlag(commandFlag) && StringUtils.startsWithIgnoreCase(commandFlag.getLongName(),
                                                                                             last))
             {
                 result.add("-" + commandFlag.getLongName());
@@ -23,6 +23,7 @@
 
 package de.cubeisland.engine.command.completer;
 
+@Stateless
 public class YesNoCompeleter extends SimpleCompleter
 {
     public YesNoCompeleter()
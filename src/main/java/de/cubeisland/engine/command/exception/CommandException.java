@@ -28,6 +28,8 @@ package de.cubeisland.engine.command.exception;
  */
 public class CommandException extends RuntimeException
 {
+    private static volatile boolean stackless = true;
+
     public CommandException()
     {
         super();
@@ -41,10 +43,60 @@ public class CommandException extends RuntimeException
     public CommandException(Throwable cause)
     {
         super(cause);
+        this.keepStackTrace();
     }
 
     public CommandException(String message, Throwable cause)
     {
         super(message, cause);
+        this.keepStackTrace();
+    }
+
+    /**
+     * An exception wrapping a cause reports a real failure, so its stack trace is filled in anyway
+     */
+    private void keepStackTrace()
+    {
+        if (stackless)
+        {
+            super.fillInStackTrace();
+        }
+    }
+
+    /**
+     * Command exceptions are expected on user errors and are thrown without a stack trace by default,
+     * unless they are created with a cause.
+     * Enable the stack traces again to debug where they get thrown.
+     *
+     * @param stackless whether to skip filling in the stack trace
+     */
+    public static void setStackless(boolean stackless)
+    {
+        CommandException.stackless = stackless;
+    }
+
+    public static boolean isStackless()
+    {
+        return stackless;
+    }
+
+    /**
+     * Returns whether this exception is caused by the user rather than a programming error
+     *
+     * @return true if the stack trace may be skipped
+     */
+    protected boolean isExpected()
+    {
+        return true;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace()
+    {
+        if (stackless && this.isExpected())
+        {
+            return this;
+        }
+        return super.fillInStackTrace();
     }
 }
@@ -25,12 +25,53 @@ package de.cubeisland.engine.command.exception;
 public class InvalidArgumentException extends CommandException
 {
     private Object position;
+    private String input;
+    private String formatted;
 
+    /**
+     * @param message the message, "{input}" gets replaced by the invalid input once the message is displayed
+     */
     public InvalidArgumentException(String message)
     {
         super(message);
     }
 
+    public void setInput(String input)
+    {
+        this.input = input;
+        this.formatted = null;
+    }
+
+    public String getInput()
+    {
+        return input;
+    }
+
+    /**
+     * Returns the message without the input filled in
+     *
+     * @return the message template
+     */
+    public String getTemplate()
+    {
+        return super.getMessage();
+    }
+
+    @Override
+    public String getMessage()
+    {
+        String template = super.getMessage();
+        if (template == null || this.input == null)
+        {
+            return template;
+        }
+        if (this.formatted == null)
+        {
+            this.formatted = template.replace("{input}", this.input);
+        }
+        return this.formatted;
+    }
+
     public void setPosition(int position)
     {
         this.position = position;
@@ -46,4 +46,10 @@ public class InvalidSignatureException extends CommandException
         this.holder = holder;
         this.method = method;
     }
+
+    @Override
+    protected boolean isExpected()
+    {
+        return false;
+    }
 }
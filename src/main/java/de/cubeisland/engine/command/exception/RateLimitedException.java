@@ -0,0 +1,51 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.exception;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This exception is thrown when a sender used a command too often.
+ */
+public class RateLimitedException extends CommandException
+{
+    private final long retryAfter;
+
+    public RateLimitedException(long retryAfter)
+    {
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns the time until the command may be used again
+     *
+     * @param unit the unit to return the time in
+     *
+     * @return the time to wait, rounded up
+     */
+    public long getRetryAfter(TimeUnit unit)
+    {
+        long nanos = unit.toNanos(1);
+        return (this.retryAfter + nanos - 1) / nanos;
+    }
+}
@@ -0,0 +1,592 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Validates command holders at compile time and generates a CommandRegistrar for each of them.
+ * The registrar creates the commands of the holder without scanning it and calls the command methods directly.
+ */
+@SupportedAnnotationTypes(CommandProcessor.ANNOTATIONS + "*")
+public class CommandProcessor extends AbstractProcessor
+{
+    private static final String BASE = "de.cubeisland.engine.command.";
+    static final String ANNOTATIONS = BASE + "reflected.annotation.";
+    private static final String COMMAND = ANNOTATIONS + "Command";
+    private static final String PERMISSION = ANNOTATIONS + "Permission";
+    private static final String ALIAS = ANNOTATIONS + "Alias";
+    private static final String RESTRICT_USAGE = ANNOTATIONS + "RestrictUsage";
+    private static final String INDEXED_PARAMS = ANNOTATIONS + "IndexedParams";
+    private static final String NAMED_PARAMS = ANNOTATIONS + "NamedParams";
+    private static final String FLAGS = ANNOTATIONS + "Flags";
+    private static final String ASYNC_CALL = ANNOTATIONS + "AsyncCall";
+    private static final String RATE_LIMIT = ANNOTATIONS + "RateLimit";
+    private static final String CONTEXT = BASE + "BaseCommandContext";
+    private static final String COMMAND_HOLDER = BASE + "CommandHolder";
+    private static final String COMPLETER = BASE + "completer.Completer";
+    private static final String SUFFIX = "_Commands";
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        this.elements = this.processingEnv.getElementUtils();
+        this.types = this.processingEnv.getTypeUtils();
+        this.messager = this.processingEnv.getMessager();
+        TypeElement command = this.elements.getTypeElement(COMMAND);
+        if (command == null || annotations.isEmpty())
+        {
+            return false;
+        }
+
+        Map<TypeElement, List<ExecutableElement>> holders = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(command))
+        {
+            TypeElement holder = (TypeElement)element.getEnclosingElement();
+            List<ExecutableElement> commands = holders.get(holder);
+            if (commands == null)
+            {
+                commands = new ArrayList<ExecutableElement>();
+                holders.put(holder, commands);
+            }
+            commands.add((ExecutableElement)element);
+        }
+
+        for (Entry<TypeElement, List<ExecutableElement>> entry : holders.entrySet())
+        {
+            List<ExecutableElement> commands = this.validate(entry.getKey(), entry.getValue());
+            if (commands != null)
+            {
+                this.generate(entry.getKey(), commands);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the holder and its commands like the CommandFactory would at runtime
+     *
+     * @return the commands the CommandFactory would create in order or null if there were errors
+     */
+    private List<ExecutableElement> validate(TypeElement holder, List<ExecutableElement> elements)
+    {
+        boolean valid = true;
+        if (holder.getNestingKind() == NestingKind.LOCAL || holder.getNestingKind() == NestingKind.ANONYMOUS)
+        {
+            this.messager.printMessage(Kind.ERROR, "Command holders must not be local or anonymous classes", holder);
+            return null;
+        }
+        for (Element type = holder; type instanceof TypeElement; type = type.getEnclosingElement())
+        {
+            if (type.getModifiers().contains(Modifier.PRIVATE))
+            {
+                this.messager.printMessage(Kind.ERROR, "Command holders must not be private", holder);
+                return null;
+            }
+        }
+
+        TypeMirror context = this.elements.getTypeElement(CONTEXT).asType();
+        TypeMirror commandHolder = this.elements.getTypeElement(COMMAND_HOLDER).asType();
+        TypeMirror exception = this.elements.getTypeElement(Exception.class.getName()).asType();
+        TypeMirror error = this.elements.getTypeElement(Error.class.getName()).asType();
+
+        List<ExecutableElement> commands = new ArrayList<ExecutableElement>();
+        ExecutableElement container = null;
+        for (ExecutableElement element : elements)
+        {
+            if (element.getKind() == ElementKind.CONSTRUCTOR)
+            {
+                if (!this.types.isAssignable(holder.asType(), commandHolder))
+                {
+                    this.messager.printMessage(Kind.WARNING, "The holder does not implement CommandHolder, "
+                        + "this command will be ignored", element);
+                }
+                else if (!element.getModifiers().contains(Modifier.PUBLIC))
+                {
+                    this.messager.printMessage(Kind.WARNING, "The constructor is not public, "
+                        + "this command will be ignored", element);
+                }
+                else if (container == null)
+                {
+                    container = element;
+                    valid &= this.validateContext(element);
+                }
+                continue;
+            }
+            if (element.getModifiers().contains(Modifier.STATIC))
+            {
+                this.messager.printMessage(Kind.WARNING, "Static methods are no commands, this command will be ignored", element);
+                continue;
+            }
+            List<? extends VariableElement> params = element.getParameters();
+            if (params.size() != 1 || !this.types.isAssignable(params.get(0).asType(), context))
+            {
+                this.messager.printMessage(Kind.ERROR, "The method does not match the required method signature: "
+                    + "public void " + element.getSimpleName() + "(CommandContext context)", element);
+                valid = false;
+                continue;
+            }
+            if (element.getModifiers().contains(Modifier.PRIVATE))
+            {
+                this.messager.printMessage(Kind.ERROR, "Command methods must not be private", element);
+                valid = false;
+            }
+            for (TypeMirror thrown : element.getThrownTypes())
+            {
+                if (!this.types.isAssignable(thrown, exception) && !this.types.isAssignable(thrown, error))
+                {
+                    this.messager.printMessage(Kind.ERROR, "Command methods may only throw exceptions", element);
+                    valid = false;
+                }
+            }
+            valid &= this.validateContext(element);
+            commands.add(element);
+        }
+        if (container != null)
+        {
+            commands.add(0, container);
+        }
+        return valid ? commands : null;
+    }
+
+    private boolean validateContext(ExecutableElement element)
+    {
+        boolean valid = true;
+        AnnotationMirror indexedParams = this.getAnnotation(element, INDEXED_PARAMS);
+        if (indexedParams != null)
+        {
+            for (AnnotationMirror grouped : this.<AnnotationMirror>getValues(indexedParams, "value"))
+            {
+                List<AnnotationMirror> indexed = this.getValues(grouped, "value");
+                if (indexed.isEmpty())
+                {
+                    this.messager.printMessage(Kind.ERROR, "You have to define at least one Indexed!", element, grouped);
+                    valid = false;
+                }
+                for (AnnotationMirror anIndexed : indexed)
+                {
+                    valid &= this.validateCompleter(element, anIndexed);
+                }
+            }
+        }
+        AnnotationMirror namedParams = this.getAnnotation(element, NAMED_PARAMS);
+        if (namedParams != null)
+        {
+            Set<String> names = new HashSet<String>();
+            for (AnnotationMirror param : this.<AnnotationMirror>getValues(namedParams, "value"))
+            {
+                List<String> paramNames = new ArrayList<String>();
+                paramNames.add((String)this.getValue(param, "name"));
+                paramNames.addAll(this.<String>getValues(param, "aliases"));
+                for (String name : paramNames)
+                {
+                    if (!names.add(name.toLowerCase(Locale.ENGLISH)))
+                    {
+                        this.messager.printMessage(Kind.ERROR, "The parameter name " + name + " is used twice", element, param);
+                        valid = false;
+                    }
+                }
+                valid &= this.validateCompleter(element, param);
+            }
+        }
+        AnnotationMirror flags = this.getAnnotation(element, FLAGS);
+        if (flags != null)
+        {
+            Set<String> names = new HashSet<String>();
+            for (AnnotationMirror flag : this.<AnnotationMirror>getValues(flags, "value"))
+            {
+                String name = (String)this.getValue(flag, "name");
+                String longName = (String)this.getValue(flag, "longName");
+                if (!names.add(name.toLowerCase(Locale.ENGLISH)) || (!longName.isEmpty() && !names.add(longName.toLowerCase(Locale.ENGLISH))))
+                {
+                    this.messager.printMessage(Kind.ERROR, "The flag " + name + " is defined twice", element, flag);
+                    valid = false;
+                }
+            }
+        }
+        AnnotationMirror rateLimit = this.getAnnotation(element, RATE_LIMIT);
+        if (rateLimit != null)
+        {
+            if (((Number)this.getValue(rateLimit, "permits")).intValue() < 1
+                || ((Number)this.getValue(rateLimit, "period")).longValue() < 1)
+            {
+                this.messager.printMessage(Kind.ERROR, "The permits and the period have to be positive!", element, rateLimit);
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean validateCompleter(ExecutableElement element, AnnotationMirror annotation)
+    {
+        TypeMirror completer = (TypeMirror)this.getValue(annotation, "completer");
+        TypeElement type = (TypeElement)this.types.asElement(completer);
+        if (type.getQualifiedName().contentEquals(COMPLETER))
+        {
+            return true;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT))
+        {
+            this.messager.printMessage(Kind.ERROR, "The completer " + type + " must not be abstract", element, annotation);
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+        {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+            {
+                return true;
+            }
+        }
+        this.messager.printMessage(Kind.ERROR, "The completer " + type + " needs a public constructor without parameters",
+                                   element, annotation);
+        return false;
+    }
+
+    private void generate(TypeElement holder, List<ExecutableElement> commands)
+    {
+        String packageName = this.elements.getPackageOf(holder).getQualifiedName().toString();
+        String binaryName = this.elements.getBinaryName(holder).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+            .replace('$', '_') + SUFFIX;
+        String holderType = this.types.erasure(holder.asType()).toString();
+
+        SourceWriter out = new SourceWriter();
+        if (!packageName.isEmpty())
+        {
+            out.line("package " + packageName + ";").line();
+        }
+        out.line("/**");
+        out.line(" * Creates the commands of {@link " + holderType + "}, generated by the command annotation processor");
+        out.line(" */");
+        out.line("@SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+        out.open("public final class " + simpleName + " implements " + BASE + "reflected.CommandRegistrar");
+        out.line("@Override");
+        out.open("public java.util.List<" + BASE + "BaseCommand> parseCommands(" + BASE + "reflected.CommandFactory factory, "
+                     + BASE + "CommandManager manager, " + BASE + "CommandOwner owner, Object object)");
+        out.line("final " + holderType + " holder = (" + holderType + ")object;");
+        out.line("java.util.List<" + BASE + "BaseCommand> commands = new java.util.ArrayList<" + BASE + "BaseCommand>();");
+        out.line(BASE + "BaseCommand parent = null;");
+        out.line(BASE + "ReflectedCommandDescriptor descriptor;");
+        for (ExecutableElement command : commands)
+        {
+            boolean container = command.getKind() == ElementKind.CONSTRUCTOR;
+            out.line();
+            out.line("// " + (container ? holder.getSimpleName() + "()" : command.getSimpleName() + "(...)"));
+            out.line("descriptor = factory.newDescriptor();");
+            out.line("descriptor.newCommand(" + this.literal(command, COMMAND) + ",");
+            out.line("                      " + this.literal(command, PERMISSION) + ",");
+            out.line("                      \"" + holder.getSimpleName() + "\", factory.getPermissionProvider());");
+            if (container)
+            {
+                out.line("descriptor.reflect(holder, null);");
+            }
+            else
+            {
+                out.line("descriptor.reflect(holder, null).invoker(" + this.invoker(command) + ");");
+            }
+            out.line("descriptor.owner(owner).alias(" + this.literal(command, ALIAS) + ").restrict("
+                         + this.literal(command, RESTRICT_USAGE) + ");");
+            out.line("descriptor.context(" + this.literal(command, INDEXED_PARAMS) + ",");
+            out.line("                   " + this.literal(command, NAMED_PARAMS) + ",");
+            out.line("                   " + this.literal(command, FLAGS) + ");");
+            if (container)
+            {
+                out.line("parent = descriptor.toCommand(manager);");
+                out.line("commands.add(parent);");
+            }
+            else
+            {
+                out.line("descriptor.parent(parent).async(" + this.literal(command, ASYNC_CALL) + ").rateLimit("
+                             + this.literal(command, RATE_LIMIT) + ");");
+                out.line("commands.add(descriptor.toCommand(manager));");
+            }
+        }
+        out.line("return commands;");
+        out.close();
+        out.close();
+
+        String name = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try
+        {
+            Writer writer = this.processingEnv.getFiler().createSourceFile(name, holder).openWriter();
+            try
+            {
+                writer.write(out.toString());
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch (IOException e)
+        {
+            this.messager.printMessage(Kind.ERROR, "Failed to write " + name + ": " + e.getMessage(), holder);
+        }
+    }
+
+    private String invoker(ExecutableElement method)
+    {
+        String param = this.types.erasure(method.getParameters().get(0).asType()).toString();
+        String call = "holder." + method.getSimpleName() + (param.equals(CONTEXT) ? "(context)" : "((" + param + ")context)");
+        StringBuilder invoker = new StringBuilder("new " + BASE + "reflected.CommandInvoker() { ");
+        invoker.append("public Object invoke(" + CONTEXT + " context) throws Exception { ");
+        if (method.getReturnType().getKind() == TypeKind.VOID)
+        {
+            invoker.append(call).append("; return null; } }");
+        }
+        else
+        {
+            invoker.append("return ").append(call).append("; } }");
+        }
+        return invoker.toString();
+    }
+
+    private AnnotationMirror getAnnotation(Element element, String type)
+    {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors())
+        {
+            if (((TypeElement)annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(type))
+            {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private Object getValue(AnnotationMirror annotation, String name)
+    {
+        for (Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.elements.getElementValuesWithDefaults(annotation).entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals(name))
+            {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> getValues(AnnotationMirror annotation, String name)
+    {
+        List<T> values = new ArrayList<T>();
+        Object array = this.getValue(annotation, name);
+        if (!(array instanceof List))
+        {
+            // erroneous code is reported by the compiler
+            return values;
+        }
+        for (AnnotationValue value : (List<? extends AnnotationValue>)array)
+        {
+            values.add((T)value.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Returns an expression that creates the annotation of the given type on the element or null if it is absent
+     */
+    private String literal(Element element, String type)
+    {
+        AnnotationMirror annotation = this.getAnnotation(element, type);
+        return annotation == null ? "(" + type + ")null" : this.literal(annotation);
+    }
+
+    /**
+     * Returns an expression that creates an instance of the annotation with all of its values
+     */
+    private String literal(AnnotationMirror annotation)
+    {
+        TypeElement type = (TypeElement)annotation.getAnnotationType().asElement();
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = this.elements.getElementValuesWithDefaults(annotation);
+        StringBuilder literal = new StringBuilder("new ").append(type.getQualifiedName()).append("() { ");
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+        {
+            literal.append("public ").append(this.sourceName(method.getReturnType())).append(' ').append(method.getSimpleName());
+            literal.append("() { return ").append(this.literal(values.get(method), method.getReturnType())).append("; } ");
+        }
+        literal.append("public Class<? extends java.lang.annotation.Annotation> annotationType() { return ");
+        literal.append(type.getQualifiedName()).append(".class; } }");
+        return literal.toString();
+    }
+
+    private String literal(AnnotationValue value, TypeMirror type)
+    {
+        Object object = value.getValue();
+        if (object instanceof List)
+        {
+            TypeMirror component = ((ArrayType)type).getComponentType();
+            StringBuilder literal = new StringBuilder("new ").append(this.sourceName(component)).append("[]{");
+            boolean first = true;
+            for (Object element : (List<?>)object)
+            {
+                if (!first)
+                {
+                    literal.append(", ");
+                }
+                literal.append(this.literal((AnnotationValue)element, component));
+                first = false;
+            }
+            return literal.append('}').toString();
+        }
+        if (object instanceof AnnotationMirror)
+        {
+            return this.literal((AnnotationMirror)object);
+        }
+        if (object instanceof TypeMirror)
+        {
+            return this.types.erasure((TypeMirror)object) + ".class";
+        }
+        if (object instanceof VariableElement)
+        {
+            VariableElement constant = (VariableElement)object;
+            return ((TypeElement)constant.getEnclosingElement()).getQualifiedName() + "." + constant.getSimpleName();
+        }
+        if (object instanceof String || object instanceof Character || object instanceof Long
+            || object instanceof Float || object instanceof Double)
+        {
+            // toString of the value is the source representation
+            return value.toString();
+        }
+        if (object instanceof Byte)
+        {
+            return "(byte)" + object;
+        }
+        if (object instanceof Short)
+        {
+            return "(short)" + object;
+        }
+        return String.valueOf(object);
+    }
+
+    /**
+     * Returns the source name of the given type.
+     * Raw types get unbounded wildcards, which is still a valid return type for the annotation methods
+     * and can be used to create arrays.
+     */
+    private String sourceName(TypeMirror type)
+    {
+        if (type.getKind() == TypeKind.ARRAY)
+        {
+            return this.sourceName(((ArrayType)type).getComponentType()) + "[]";
+        }
+        if (type.getKind() != TypeKind.DECLARED)
+        {
+            return type.toString();
+        }
+        int parameters = ((TypeElement)this.types.asElement(type)).getTypeParameters().size();
+        if (parameters == 0 || !((DeclaredType)type).getTypeArguments().isEmpty())
+        {
+            return type.toString();
+        }
+        StringBuilder name = new StringBuilder(this.types.erasure(type).toString()).append("<?");
+        for (int i = 1; i < parameters; i++)
+        {
+            name.append(", ?");
+        }
+        return name.append('>').toString();
+    }
+
+    /**
+     * Writes java source with allman braces
+     */
+    private static final class SourceWriter
+    {
+        private final StringBuilder source = new StringBuilder();
+        private int indent = 0;
+
+        private SourceWriter line(String line)
+        {
+            for (int i = 0; i < this.indent; i++)
+            {
+                this.source.append("    ");
+            }
+            this.source.append(line).append('\n');
+            return this;
+        }
+
+        private SourceWriter line()
+        {
+            this.source.append('\n');
+            return this;
+        }
+
+        private void open(String line)
+        {
+            this.line(line).line("{");
+            this.indent++;
+        }
+
+        private void close()
+        {
+            this.indent--;
+            this.line("}");
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.source.toString();
+        }
+    }
+}
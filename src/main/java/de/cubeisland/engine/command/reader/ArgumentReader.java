@@ -22,66 +22,37 @@
  */
 package de.cubeisland.engine.command.reader;
 
-import java.util.Iterator;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import de.cubeisland.engine.command.BaseCommandSender;
 import de.cubeisland.engine.command.exception.InvalidArgumentException;
 
 public abstract class ArgumentReader
 {
-    private static final Map<Class<?>, ArgumentReader> READERS;
-
-    static
-    {
-        READERS = new ConcurrentHashMap<Class<?>, ArgumentReader>();
-        registerReader(new ByteReader(), Byte.class, byte.class);
-        registerReader(new ShortReader(), Short.class, short.class);
-        registerReader(new IntReader(), Integer.class, int.class);
-        registerReader(new LongReader(), Long.class, long.class);
-        registerReader(new FloatReader(), Float.class, float.class);
-        registerReader(new DoubleReader(), Double.class, double.class);
-        registerReader(new StringReader(), String.class);
-    }
+    /**
+     * Returned by {@link #tryRead(String, Locale)} if the arg could not be read
+     */
+    public static final Object FAILED = new Object();
 
+    /**
+     * Registers the reader in the {@link ReaderRegistry#global() global registry}
+     *
+     * @param reader  the reader
+     * @param classes the types it reads
+     */
     public static void registerReader(ArgumentReader reader, Class<?>... classes)
     {
-        for (Class c : classes)
-        {
-            READERS.put(c, reader);
-        }
-        READERS.put(reader.getClass(), reader);
+        ReaderRegistry.global().registerReader(reader, classes);
     }
 
     public static ArgumentReader getReader(Class<?> type)
     {
-        return READERS.get(type);
+        return ReaderRegistry.global().getReader(type);
     }
 
     public static ArgumentReader resolveReader(Class<?> type)
     {
-        ArgumentReader reader = getReader(type);
-        if (reader == null)
-        {
-            Class<?> next;
-            Iterator<Class<?>> it = READERS.keySet().iterator();
-            while (it.hasNext())
-            {
-                next = it.next();
-                if (type.isAssignableFrom(next))
-                {
-                    reader = READERS.get(next);
-                    if (reader != null)
-                    {
-                        registerReader(reader, type);
-                        break;
-                    }
-                }
-            }
-        }
-        return reader;
+        return ReaderRegistry.global().resolveReader(type);
     }
 
     public static boolean hasReader(Class<?> type)
@@ -91,17 +62,7 @@ public abstract class ArgumentReader
 
     public static void removeReader(Class type)
     {
-        Iterator<Map.Entry<Class<?>, ArgumentReader>> it = READERS.entrySet().iterator();
-
-        Map.Entry<Class<?>, ArgumentReader> entry;
-        while (it.hasNext())
-        {
-            entry = it.next();
-            if (entry.getKey() == type || entry.getValue().getClass() == type)
-            {
-                it.remove();
-            }
-        }
+        ReaderRegistry.global().removeReader(type);
     }
 
     public static <T> T read(Class<T> clazz, String string, BaseCommandSender sender) throws InvalidArgumentException
@@ -126,4 +87,53 @@ public abstract class ArgumentReader
      * @return the number of arguments paired with the value that got read from the input array
      */
     public abstract Object read(String arg, Locale locale) throws InvalidArgumentException;
+
+    /**
+     * Reads a region of the source, e.g. a token of a command line, without creating a String for it first.
+     * Readers that are able to read the chars directly should override this.
+     *
+     * @param source the source
+     * @param start  the start of the arg
+     * @param end    the end of the arg
+     *
+     * @return the value
+     */
+    public Object read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.read(source.subSequence(start, end).toString(), locale);
+    }
+
+    /**
+     * Reads a region of the source without throwing if it is invalid
+     *
+     * @param source the source
+     * @param start  the start of the arg
+     * @param end    the end of the arg
+     *
+     * @return the value or {@link #FAILED}
+     */
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        return this.tryRead(source.subSequence(start, end).toString(), locale);
+    }
+
+    /**
+     * Reads the arg without throwing if it is invalid.
+     * Readers should override this if failing is a common case for them.
+     *
+     * @param arg an string
+     *
+     * @return the value or {@link #FAILED}
+     */
+    public Object tryRead(String arg, Locale locale)
+    {
+        try
+        {
+            return this.read(arg, locale);
+        }
+        catch (InvalidArgumentException e)
+        {
+            return FAILED;
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import java.util.Locale;
+
+/**
+ * An {@link ArgumentReader} that is able to read many args at once, e.g. to resolve names with a single lookup.
+ * The context collects every unread arg of the reader when the first of them is accessed and reads all of them together.
+ */
+public interface BatchArgumentReader
+{
+    /**
+     * Reads all given args.
+     * Args that can not be read keep {@link ArgumentReader#FAILED} as their value
+     * and are read again by {@link ArgumentReader#read} to report the error.
+     *
+     * @param args   the args
+     * @param values the values of the args, filled with {@link ArgumentReader#FAILED}
+     */
+    void readAll(String[] args, Object[] values, Locale locale);
+}
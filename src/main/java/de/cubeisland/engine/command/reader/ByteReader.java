@@ -32,14 +32,44 @@ public class ByteReader extends ArgumentReader
     @Override
     public Byte read(String arg, Locale locale) throws InvalidArgumentException
     {
-        String num = arg.replace(',', '.').replace(".", "");
-        try
+        return this.readByte(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Byte read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.readByte(source, start, end, locale);
+    }
+
+    public byte readByte(CharSequence arg, Locale locale) throws InvalidArgumentException
+    {
+        return this.readByte(arg, 0, arg.length(), locale);
+    }
+
+    public byte readByte(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        long value = IntegerParser.parse(source, start, end, true, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        if (value == IntegerParser.INVALID)
         {
-            return Byte.parseByte(num);
+            throw new InvalidArgumentException("Could not parse {input} to a byte!"); // TODO
         }
-        catch (NumberFormatException e)
+        return (byte)value;
+    }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return this.tryRead(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        long value = IntegerParser.parse(source, start, end, true, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        if (value == IntegerParser.INVALID)
         {
-            throw new InvalidArgumentException("Could not parse {input} to a byte!"); // TODO
+            return FAILED;
         }
+        return (byte)value;
     }
 }
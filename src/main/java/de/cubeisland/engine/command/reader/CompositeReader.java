@@ -0,0 +1,128 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import java.util.Locale;
+
+import de.cubeisland.engine.command.CommandLine;
+import de.cubeisland.engine.command.exception.InvalidArgumentException;
+
+/**
+ * Reads a single value from a fixed amount of consecutive indexed tokens, e.g. coordinates from {@code x y z}.
+ * An indexed parameter of a composite type consumes all of its tokens and yields one value.
+ * It can not be greedy nor be combined with other types.
+ */
+public abstract class CompositeReader extends ArgumentReader
+{
+    private static final IntReader INT_READER = new IntReader();
+    private static final LongReader LONG_READER = new LongReader();
+    private static final DoubleReader DOUBLE_READER = new DoubleReader();
+
+    private final int arity;
+
+    /**
+     * @param arity the amount of tokens a value consists of
+     */
+    protected CompositeReader(int arity)
+    {
+        if (arity < 1)
+        {
+            throw new IllegalArgumentException("A composite value needs at least one token!");
+        }
+        this.arity = arity;
+    }
+
+    public final int getArity()
+    {
+        return this.arity;
+    }
+
+    /**
+     * Reads the value from the tokens of the line
+     *
+     * @param args   the line
+     * @param tokens the indices of the indexed tokens in the line
+     * @param offset the position of the first token of the value in tokens
+     *
+     * @return the value
+     */
+    public abstract Object read(CommandLine args, int[] tokens, int offset, Locale locale) throws InvalidArgumentException;
+
+    /**
+     * Splits the arg into its tokens and reads them
+     */
+    @Override
+    public Object read(String arg, Locale locale) throws InvalidArgumentException
+    {
+        CommandLine args = CommandLine.tokenize(arg);
+        if (args.size() != this.arity)
+        {
+            throw new InvalidArgumentException("{input} does not consist of " + this.arity + " values!");
+        }
+        int[] tokens = new int[this.arity];
+        for (int i = 0; i < tokens.length; i++)
+        {
+            tokens[i] = i;
+        }
+        return this.read(args, tokens, 0, locale);
+    }
+
+    /**
+     * Reads a single token with the given reader
+     */
+    protected static Object read(ArgumentReader reader, CommandLine args, int token, Locale locale) throws InvalidArgumentException
+    {
+        if (args.isEscaped(token))
+        {
+            return reader.read(args.getString(token), locale);
+        }
+        return reader.read(args.getSource(), args.getStart(token), args.getEnd(token), locale);
+    }
+
+    protected static int readInt(CommandLine args, int token, Locale locale) throws InvalidArgumentException
+    {
+        if (args.isEscaped(token))
+        {
+            return INT_READER.readInt(args.getString(token), locale);
+        }
+        return INT_READER.readInt(args.getSource(), args.getStart(token), args.getEnd(token), locale);
+    }
+
+    protected static long readLong(CommandLine args, int token, Locale locale) throws InvalidArgumentException
+    {
+        if (args.isEscaped(token))
+        {
+            return LONG_READER.readLong(args.getString(token), locale);
+        }
+        return LONG_READER.readLong(args.getSource(), args.getStart(token), args.getEnd(token), locale);
+    }
+
+    protected static double readDouble(CommandLine args, int token, Locale locale) throws InvalidArgumentException
+    {
+        if (args.isEscaped(token))
+        {
+            return DOUBLE_READER.readDouble(args.getString(token), locale);
+        }
+        return DOUBLE_READER.readDouble(args.getSource(), args.getStart(token), args.getEnd(token), locale);
+    }
+}
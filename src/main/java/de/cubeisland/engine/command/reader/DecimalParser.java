@@ -0,0 +1,250 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parses decimal numbers straight from the chars of an arg.
+ * The separators of every locale are looked up once and cached, parsing only allocates
+ * for numbers with more than 15 significant digits or a large exponent.
+ */
+final class DecimalParser
+{
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /**
+     * The most significant digits a long can hold without overflowing
+     */
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_EXPONENT = 100000;
+    private static final ConcurrentMap<Locale, Symbols> SYMBOLS = new ConcurrentHashMap<Locale, Symbols>();
+
+    private DecimalParser()
+    {
+    }
+
+    /**
+     * Parses the given range of the arg, falling back to the default locale
+     *
+     * @param arg    the arg
+     * @param start  the start of the number
+     * @param end    the end of the number
+     * @param locale the locale
+     *
+     * @return the value or NaN if the range is not a valid number
+     */
+    static double parse(CharSequence arg, int start, int end, Locale locale)
+    {
+        Locale defaultLocale = Locale.getDefault();
+        if (locale == null)
+        {
+            locale = defaultLocale;
+        }
+        double value = parse(arg, start, end, symbols(locale));
+        if (Double.isNaN(value) && !locale.equals(defaultLocale))
+        {
+            value = parse(arg, start, end, symbols(defaultLocale));
+        }
+        return value;
+    }
+
+    private static Symbols symbols(Locale locale)
+    {
+        Symbols symbols = SYMBOLS.get(locale);
+        if (symbols == null)
+        {
+            symbols = new Symbols(DecimalFormatSymbols.getInstance(locale));
+            SYMBOLS.putIfAbsent(locale, symbols);
+        }
+        return symbols;
+    }
+
+    private static double parse(CharSequence arg, int start, int end, Symbols symbols)
+    {
+        int i = start;
+        boolean negative = false;
+        if (i < end)
+        {
+            char c = arg.charAt(i);
+            if (c == '-' || c == symbols.minus)
+            {
+                negative = true;
+                i++;
+            }
+            else if (c == '+')
+            {
+                i++;
+            }
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean any = false;
+        for (; i < end; i++)
+        {
+            char c = arg.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                any = true;
+                if (digits < MAX_DIGITS)
+                {
+                    if (mantissa != 0 || c != '0')
+                    {
+                        mantissa = mantissa * 10 + (c - '0');
+                        digits++;
+                    }
+                }
+                else
+                {
+                    exponent++;
+                    exact = false;
+                }
+            }
+            else if (c != symbols.grouping || !any || i + 1 == end || !isDigit(arg.charAt(i + 1)))
+            {
+                break;
+            }
+        }
+        if (i < end && arg.charAt(i) == symbols.decimal)
+        {
+            for (i++; i < end; i++)
+            {
+                char c = arg.charAt(i);
+                if (c < '0' || c > '9')
+                {
+                    break;
+                }
+                any = true;
+                if (digits < MAX_DIGITS)
+                {
+                    if (mantissa != 0 || c != '0')
+                    {
+                        mantissa = mantissa * 10 + (c - '0');
+                        digits++;
+                    }
+                    exponent--;
+                }
+                else
+                {
+                    exact = false;
+                }
+            }
+        }
+        if (!any)
+        {
+            return Double.NaN;
+        }
+        if (i < end && (arg.charAt(i) == 'e' || arg.charAt(i) == 'E'))
+        {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (arg.charAt(i) == '-' || arg.charAt(i) == '+'))
+            {
+                negativeExponent = arg.charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int value = 0;
+            for (; i < end && isDigit(arg.charAt(i)); i++)
+            {
+                value = Math.min(value * 10 + (arg.charAt(i) - '0'), MAX_EXPONENT);
+            }
+            if (i == exponentStart)
+            {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != end)
+        {
+            return Double.NaN;
+        }
+
+        double value;
+        if (mantissa == 0)
+        {
+            value = 0;
+        }
+        else if (exact && digits <= 15 && exponent >= -22 && exponent <= 22)
+        {
+            // both operands are exact doubles so this rounds correctly
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        }
+        else
+        {
+            return Double.parseDouble(normalize(arg, start, end, symbols));
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Converts a valid number to the format of {@link Double#parseDouble}
+     */
+    private static String normalize(CharSequence arg, int start, int end, Symbols symbols)
+    {
+        StringBuilder normalized = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+        {
+            char c = arg.charAt(i);
+            if (i == start && c == symbols.minus)
+            {
+                normalized.append('-');
+            }
+            else if (c == symbols.decimal)
+            {
+                normalized.append('.');
+            }
+            else if (c != symbols.grouping)
+            {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static final class Symbols
+    {
+        private final char decimal;
+        private final char grouping;
+        private final char minus;
+
+        private Symbols(DecimalFormatSymbols symbols)
+        {
+            this.decimal = symbols.getDecimalSeparator();
+            this.grouping = symbols.getGroupingSeparator();
+            this.minus = symbols.getMinusSign();
+        }
+    }
+}
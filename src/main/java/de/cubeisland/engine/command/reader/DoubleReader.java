@@ -22,32 +22,54 @@
  */
 package de.cubeisland.engine.command.reader;
 
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.util.Locale;
 
 import de.cubeisland.engine.command.reader.ArgumentReader;
 import de.cubeisland.engine.command.exception.InvalidArgumentException;
 
-public class DoubleReader extends ArgumentReader
+public class DoubleReader extends ArgumentReader implements DoubleArgumentReader
 {
     @Override
     public Double read(String arg, Locale locale) throws InvalidArgumentException
     {
-        try
+        return this.readDouble(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Double read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.readDouble(source, start, end, locale);
+    }
+
+    public double readDouble(CharSequence arg, Locale locale) throws InvalidArgumentException
+    {
+        return this.readDouble(arg, 0, arg.length(), locale);
+    }
+
+    public double readDouble(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        double value = DecimalParser.parse(source, start, end, locale);
+        if (Double.isNaN(value))
         {
-            return NumberFormat.getInstance(locale).parse(arg).doubleValue();
+            throw new InvalidArgumentException("Could not parse {input} to double!"); // TODO
         }
-        catch (ParseException e)
+        return value;
+    }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return this.tryRead(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        double value = DecimalParser.parse(source, start, end, locale);
+        if (Double.isNaN(value))
         {
-            try
-            {
-                return NumberFormat.getInstance().parse(arg).doubleValue(); // Try parsing with default locale
-            }
-            catch (ParseException e1)
-            {
-                throw new InvalidArgumentException("Could not parse {input} to double!"); // TODO
-            }
+            return FAILED;
         }
+        return value;
     }
 }
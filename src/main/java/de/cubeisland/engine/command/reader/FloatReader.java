@@ -22,8 +22,6 @@
  */
 package de.cubeisland.engine.command.reader;
 
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.util.Locale;
 
 import de.cubeisland.engine.command.reader.ArgumentReader;
@@ -34,20 +32,44 @@ public class FloatReader extends ArgumentReader
     @Override
     public Float read(String arg, Locale locale) throws InvalidArgumentException
     {
-        try
+        return this.readFloat(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Float read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.readFloat(source, start, end, locale);
+    }
+
+    public float readFloat(CharSequence arg, Locale locale) throws InvalidArgumentException
+    {
+        return this.readFloat(arg, 0, arg.length(), locale);
+    }
+
+    public float readFloat(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        double value = DecimalParser.parse(source, start, end, locale);
+        if (Double.isNaN(value))
         {
-            return NumberFormat.getInstance(locale).parse(arg).floatValue();
+            throw new InvalidArgumentException("Could not parse {input} to float!"); // TODO
         }
-        catch (ParseException e)
+        return (float)value;
+    }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return this.tryRead(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        double value = DecimalParser.parse(source, start, end, locale);
+        if (Double.isNaN(value))
         {
-            try
-            {
-                return NumberFormat.getInstance().parse(arg).floatValue(); // Try default locale
-            }
-            catch (ParseException e1)
-            {
-                throw new InvalidArgumentException("Could not parse {input} to float!"); // TODO
-            }
+            return FAILED;
         }
+        return (float)value;
     }
 }
@@ -27,19 +27,49 @@ import java.util.Locale;
 import de.cubeisland.engine.command.reader.ArgumentReader;
 import de.cubeisland.engine.command.exception.InvalidArgumentException;
 
-public class IntReader extends ArgumentReader
+public class IntReader extends ArgumentReader implements IntArgumentReader
 {
     @Override
     public Integer read(String arg, Locale locale) throws InvalidArgumentException
     {
-        String num = arg.replace(',', '.').replace(".", "");
-        try
+        return this.readInt(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Integer read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.readInt(source, start, end, locale);
+    }
+
+    public int readInt(CharSequence arg, Locale locale) throws InvalidArgumentException
+    {
+        return this.readInt(arg, 0, arg.length(), locale);
+    }
+
+    public int readInt(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        long value = IntegerParser.parse(source, start, end, true, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        if (value == IntegerParser.INVALID)
         {
-            return Integer.parseInt(num);
+            throw new InvalidArgumentException("Could not parse {input} to integer!"); // TODO
         }
-        catch (NumberFormatException e)
+        return (int)value;
+    }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return this.tryRead(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        long value = IntegerParser.parse(source, start, end, true, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        if (value == IntegerParser.INVALID)
         {
-            throw new InvalidArgumentException("Could not parse {input} to integer!"); // TODO
+            return FAILED;
         }
+        return (int)value;
     }
 }
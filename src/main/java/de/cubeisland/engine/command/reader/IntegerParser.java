@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+/**
+ * Parses integral numbers without throwing on invalid input
+ */
+final class IntegerParser
+{
+    /**
+     * Returned by {@link #parse} for an invalid number
+     */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final String MIN_VALUE_DIGITS = "9223372036854775808";
+
+    private IntegerParser()
+    {
+    }
+
+    /**
+     * Parses a region of the arg as an integral number in the given range
+     *
+     * @param arg        the arg
+     * @param start      the start of the number
+     * @param end        the end of the number
+     * @param separators whether '.' and ',' are ignored between the digits
+     * @param min        the smallest valid value
+     * @param max        the largest valid value
+     *
+     * @return the value or {@link #INVALID} if the arg is invalid,
+     *         a range including Long.MIN_VALUE has to tell them apart with {@link #isMinValue}
+     */
+    static long parse(CharSequence arg, int start, int end, boolean separators, long min, long max)
+    {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (arg.charAt(i) == '-' || arg.charAt(i) == '+'))
+        {
+            negative = arg.charAt(i) == '-';
+            i++;
+        }
+        // accumulate negatively to be able to represent Long.MIN_VALUE
+        final long limit = negative ? min : -max;
+        long result = 0;
+        boolean digits = false;
+        for (; i < end; i++)
+        {
+            char c = arg.charAt(i);
+            if (separators && (c == '.' || c == ','))
+            {
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || result < (limit + digit) / 10)
+            {
+                return INVALID;
+            }
+            result = result * 10 - digit;
+            digits = true;
+        }
+        if (!digits || result < limit)
+        {
+            return INVALID;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Checks whether a region is the number Long.MIN_VALUE
+     *
+     * @param separators whether '.' and ',' are ignored between the digits
+     */
+    static boolean isMinValue(CharSequence arg, int start, int end, boolean separators)
+    {
+        if (start >= end || arg.charAt(start) != '-')
+        {
+            return false;
+        }
+        int digit = 0;
+        for (int i = start + 1; i < end; i++)
+        {
+            char c = arg.charAt(i);
+            if ((separators && (c == '.' || c == ',')) || (digit == 0 && c == '0'))
+            {
+                continue;
+            }
+            if (digit == MIN_VALUE_DIGITS.length() || c != MIN_VALUE_DIGITS.charAt(digit++))
+            {
+                return false;
+            }
+        }
+        return digit == MIN_VALUE_DIGITS.length();
+    }
+}
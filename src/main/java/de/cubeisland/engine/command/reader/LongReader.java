@@ -27,18 +27,49 @@ import java.util.Locale;
 import de.cubeisland.engine.command.reader.ArgumentReader;
 import de.cubeisland.engine.command.exception.InvalidArgumentException;
 
-public class LongReader extends ArgumentReader
+public class LongReader extends ArgumentReader implements LongArgumentReader
 {
     @Override
     public Long read(String arg, Locale locale) throws InvalidArgumentException
     {
-        try
+        return this.readLong(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Long read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.readLong(source, start, end, locale);
+    }
+
+    public long readLong(CharSequence arg, Locale locale) throws InvalidArgumentException
+    {
+        return this.readLong(arg, 0, arg.length(), locale);
+    }
+
+    public long readLong(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        long value = IntegerParser.parse(source, start, end, false, Long.MIN_VALUE, Long.MAX_VALUE);
+        if (value == IntegerParser.INVALID && !IntegerParser.isMinValue(source, start, end, false))
         {
-            return Long.parseLong(arg);
+            throw new InvalidArgumentException("Could not parse {input} to long!"); // TODO
         }
-        catch (NumberFormatException e)
+        return value;
+    }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return this.tryRead(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        long value = IntegerParser.parse(source, start, end, false, Long.MIN_VALUE, Long.MAX_VALUE);
+        if (value == IntegerParser.INVALID && !IntegerParser.isMinValue(source, start, end, false))
         {
-            throw new InvalidArgumentException("Could not parse {input} to long!"); // TODO
+            return FAILED;
         }
+        return value;
     }
 }
@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The readers known to a {@link de.cubeisland.engine.command.CommandManager}.
+ * The readers are kept in an immutable snapshot that gets copied and republished on every change,
+ * so looking up a reader never locks. Types without a reader of their own are resolved by the parent registry.
+ */
+public final class ReaderRegistry
+{
+    private static final ReaderRegistry GLOBAL = new ReaderRegistry(null);
+
+    static
+    {
+        GLOBAL.registerReader(new ByteReader(), Byte.class, byte.class);
+        GLOBAL.registerReader(new ShortReader(), Short.class, short.class);
+        GLOBAL.registerReader(new IntReader(), Integer.class, int.class);
+        GLOBAL.registerReader(new LongReader(), Long.class, long.class);
+        GLOBAL.registerReader(new FloatReader(), Float.class, float.class);
+        GLOBAL.registerReader(new DoubleReader(), Double.class, double.class);
+        GLOBAL.registerReader(new StringReader(), String.class);
+    }
+
+    private final ReaderRegistry parent;
+    private volatile Snapshot snapshot = new Snapshot(new HashMap<Class<?>, ArgumentReader>(), 0);
+
+    /**
+     * @param parent the registry to fall back to or null
+     */
+    public ReaderRegistry(ReaderRegistry parent)
+    {
+        this.parent = parent;
+    }
+
+    /**
+     * Returns the registry shared by the whole JVM which knows the default readers
+     *
+     * @return the global registry
+     */
+    public static ReaderRegistry global()
+    {
+        return GLOBAL;
+    }
+
+    public synchronized void registerReader(ArgumentReader reader, Class<?>... classes)
+    {
+        Map<Class<?>, ArgumentReader> readers = new HashMap<Class<?>, ArgumentReader>(this.snapshot.readers);
+        for (Class<?> c : classes)
+        {
+            readers.put(c, reader);
+        }
+        readers.put(reader.getClass(), reader);
+        this.snapshot = new Snapshot(readers, this.snapshot.generation + 1);
+    }
+
+    public synchronized void removeReader(Class<?> type)
+    {
+        Map<Class<?>, ArgumentReader> readers = new HashMap<Class<?>, ArgumentReader>(this.snapshot.readers);
+        Iterator<Entry<Class<?>, ArgumentReader>> it = readers.entrySet().iterator();
+        while (it.hasNext())
+        {
+            Entry<Class<?>, ArgumentReader> entry = it.next();
+            if (entry.getKey() == type || entry.getValue().getClass() == type)
+            {
+                it.remove();
+            }
+        }
+        this.snapshot = new Snapshot(readers, this.snapshot.generation + 1);
+    }
+
+    /**
+     * Returns the reader registered for exactly the given type
+     *
+     * @param type the type
+     *
+     * @return the reader or null
+     */
+    public ArgumentReader getReader(Class<?> type)
+    {
+        ArgumentReader reader = this.snapshot.readers.get(type);
+        if (reader == null && this.parent != null)
+        {
+            return this.parent.getReader(type);
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the reader registered for the given type or for one of its subtypes
+     *
+     * @param type the type
+     *
+     * @return the reader or null
+     */
+    public ArgumentReader resolveReader(Class<?> type)
+    {
+        ArgumentReader reader = this.snapshot.resolve(type);
+        if (reader == null && this.parent != null)
+        {
+            return this.parent.resolveReader(type);
+        }
+        return reader;
+    }
+
+    /**
+     * Returns a counter that changes whenever readers get registered or removed here or in a parent
+     *
+     * @return the generation of the readers
+     */
+    public int getGeneration()
+    {
+        int generation = this.snapshot.generation;
+        return this.parent == null ? generation : generation + this.parent.getGeneration();
+    }
+
+    private static final class Snapshot
+    {
+        private static final ArgumentReader NO_READER = new StringReader();
+
+        private final Map<Class<?>, ArgumentReader> readers;
+        private final int generation;
+        /**
+         * Caches the resolved readers including {@link #NO_READER} for types without one
+         */
+        private final Map<Class<?>, ArgumentReader> resolved = new ConcurrentHashMap<Class<?>, ArgumentReader>();
+
+        private Snapshot(Map<Class<?>, ArgumentReader> readers, int generation)
+        {
+            this.readers = readers;
+            this.generation = generation;
+        }
+
+        private ArgumentReader resolve(Class<?> type)
+        {
+            ArgumentReader reader = this.readers.get(type);
+            if (reader != null)
+            {
+                return reader;
+            }
+            reader = this.resolved.get(type);
+            if (reader == null)
+            {
+                for (Entry<Class<?>, ArgumentReader> entry : this.readers.entrySet())
+                {
+                    if (type.isAssignableFrom(entry.getKey()))
+                    {
+                        reader = entry.getValue();
+                        break;
+                    }
+                }
+                if (reader == null)
+                {
+                    reader = NO_READER;
+                }
+                this.resolved.put(type, reader);
+            }
+            return reader == NO_READER ? null : reader;
+        }
+    }
+}
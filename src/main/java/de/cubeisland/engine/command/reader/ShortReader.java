@@ -32,13 +32,44 @@ public class ShortReader extends ArgumentReader
     @Override
     public Short read(String arg, Locale locale) throws InvalidArgumentException
     {
-        try
+        return this.readShort(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Short read(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        return this.readShort(source, start, end, locale);
+    }
+
+    public short readShort(CharSequence arg, Locale locale) throws InvalidArgumentException
+    {
+        return this.readShort(arg, 0, arg.length(), locale);
+    }
+
+    public short readShort(CharSequence source, int start, int end, Locale locale) throws InvalidArgumentException
+    {
+        long value = IntegerParser.parse(source, start, end, false, Short.MIN_VALUE, Short.MAX_VALUE);
+        if (value == IntegerParser.INVALID)
         {
-            return Short.parseShort(arg);
+            throw new InvalidArgumentException("Could not parse {input} to short!"); // TODO
         }
-        catch (NumberFormatException e)
+        return (short)value;
+    }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return this.tryRead(arg, 0, arg.length(), locale);
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        long value = IntegerParser.parse(source, start, end, false, Short.MIN_VALUE, Short.MAX_VALUE);
+        if (value == IntegerParser.INVALID)
         {
-            throw new InvalidArgumentException("Could not parse {input} to short!"); // TODO
+            return FAILED;
         }
+        return (short)value;
     }
 }
@@ -34,4 +34,26 @@ public final class StringReader extends ArgumentReader
     {
         return arg;
     }
+
+    @Override
+    public Object tryRead(String arg, Locale locale)
+    {
+        return arg;
+    }
+
+    @Override
+    public String read(CharSequence source, int start, int end, Locale locale)
+    {
+        if (start == 0 && end == source.length() && source instanceof String)
+        {
+            return (String)source;
+        }
+        return source.subSequence(start, end).toString();
+    }
+
+    @Override
+    public Object tryRead(CharSequence source, int start, int end, Locale locale)
+    {
+        return this.read(source, start, end, locale);
+    }
 }
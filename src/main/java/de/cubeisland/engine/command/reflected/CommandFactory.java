@@ -27,6 +27,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.cubeisland.engine.command.BaseCommand;
 import de.cubeisland.engine.command.BaseCommandContext;
@@ -35,28 +37,45 @@ import de.cubeisland.engine.command.CommandManager;
 import de.cubeisland.engine.command.CommandOwner;
 import de.cubeisland.engine.command.PermissionProvider;
 import de.cubeisland.engine.command.ReflectedCommandDescriptor;
+import de.cubeisland.engine.command.completer.CompleterRegistry;
 import de.cubeisland.engine.command.exception.InvalidSignatureException;
 import de.cubeisland.engine.command.reflected.annotation.Alias;
+import de.cubeisland.engine.command.reflected.annotation.AsyncCall;
 import de.cubeisland.engine.command.reflected.annotation.Command;
 import de.cubeisland.engine.command.reflected.annotation.Flags;
 import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
 import de.cubeisland.engine.command.reflected.annotation.NamedParams;
 import de.cubeisland.engine.command.reflected.annotation.Permission;
+import de.cubeisland.engine.command.reflected.annotation.RateLimit;
 import de.cubeisland.engine.command.reflected.annotation.RestrictUsage;
 
 public class CommandFactory
 {
+    private static final Object NO_REGISTRAR = new Object();
+
     private final PermissionProvider permissionProvider;
+    private final Map<Class<?>, Object> registrars = new ConcurrentHashMap<Class<?>, Object>();
+    private volatile boolean lazy = false;
+    private volatile CompleterRegistry completers = CompleterRegistry.global();
 
     public CommandFactory(PermissionProvider permissionProvider)
     {
         this.permissionProvider = permissionProvider;
     }
 
+    public PermissionProvider getPermissionProvider()
+    {
+        return permissionProvider;
+    }
+
     public List<BaseCommand> parseCommands(CommandManager manager, CommandOwner owner, Object holder)
     {
+        CommandRegistrar registrar = this.getRegistrar(holder.getClass());
+        if (registrar != null)
+        {
+            return registrar.parseCommands(this, manager, owner, holder);
+        }
         // TODO Unloggable
-        // TODO AsyncCall
         List<BaseCommand> commands = new ArrayList<BaseCommand>();
         BaseCommand parent = null;
         if (holder instanceof CommandHolder)
@@ -106,11 +125,13 @@ public class CommandFactory
                 IndexedParams aIndexed = aHolder.getAnnotation(IndexedParams.class);
                 NamedParams aNamed = aHolder.getAnnotation(NamedParams.class);
                 Flags aFlags = aHolder.getAnnotation(Flags.class);
+                AsyncCall aAsync = aHolder.getAnnotation(AsyncCall.class);
+                RateLimit aRateLimit = aHolder.getAnnotation(RateLimit.class);
                 ReflectedCommandDescriptor descriptor = newDescriptor();
 
                 descriptor.newCommand(aCommand, aPermission, holder.getClass().getSimpleName(), permissionProvider);
-                descriptor.reflect(holder, aHolder).owner(owner).alias(aAlias).restrict(aRUsage);
-                descriptor.context(aIndexed, aNamed, aFlags).parent(parent);
+                descriptor.reflect(holder, aHolder).invoker(this.newInvoker(holder, aHolder)).owner(owner).alias(aAlias).restrict(aRUsage);
+                descriptor.context(aIndexed, aNamed, aFlags).parent(parent).async(aAsync).rateLimit(aRateLimit);
 
                 commands.add(descriptor.toCommand(manager));
             }
@@ -118,8 +139,88 @@ public class CommandFactory
         return commands;
     }
 
+    /**
+     * Returns the registrar generated for the holder class
+     *
+     * @param holderClass the class of the holder
+     *
+     * @return the registrar or null if the holder was not processed at compile time
+     */
+    private CommandRegistrar getRegistrar(Class<?> holderClass)
+    {
+        Object registrar = this.registrars.get(holderClass);
+        if (registrar == null)
+        {
+            registrar = NO_REGISTRAR;
+            String name = holderClass.getName().replace('$', '_') + CommandRegistrar.SUFFIX;
+            try
+            {
+                Class<?> registrarClass = Class.forName(name, true, holderClass.getClassLoader());
+                if (CommandRegistrar.class.isAssignableFrom(registrarClass))
+                {
+                    registrar = registrarClass.newInstance();
+                }
+            }
+            catch (ClassNotFoundException ignored)
+            {
+                // parse the holder through reflection
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException("Failed to create the command registrar " + name, e);
+            }
+            this.registrars.put(holderClass, registrar);
+        }
+        return registrar == NO_REGISTRAR ? null : (CommandRegistrar)registrar;
+    }
+
+    /**
+     * Binds the command method to an invoker.
+     * Override this to provide invokers that call the method directly.
+     *
+     * @param holder the holder of the method
+     * @param method the command method
+     *
+     * @return the invoker
+     */
+    protected CommandInvoker newInvoker(Object holder, Method method)
+    {
+        return new ReflectiveInvoker(holder, method);
+    }
+
+    /**
+     * In lazy mode only the name, aliases and permission of the commands get created when registering them.
+     * Parameters, flags and completers are created when a command gets executed or completed for the first time.
+     *
+     * @param lazy whether to create the commands lazily
+     */
+    public void setLazy(boolean lazy)
+    {
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy()
+    {
+        return this.lazy;
+    }
+
+    /**
+     * Sets the registry the completers of the parameters are taken from, the global one by default
+     *
+     * @param completers the registry
+     */
+    public void setCompleterRegistry(CompleterRegistry completers)
+    {
+        this.completers = completers;
+    }
+
+    public CompleterRegistry getCompleterRegistry()
+    {
+        return this.completers;
+    }
+
     public ReflectedCommandDescriptor newDescriptor()
     {
-        return new ReflectedCommandDescriptor();
+        return new ReflectedCommandDescriptor().lazy(this.lazy).completers(this.completers);
     }
 }
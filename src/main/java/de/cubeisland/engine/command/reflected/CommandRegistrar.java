@@ -0,0 +1,49 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reflected;
+
+import java.util.List;
+
+import de.cubeisland.engine.command.BaseCommand;
+import de.cubeisland.engine.command.CommandManager;
+import de.cubeisland.engine.command.CommandOwner;
+
+/**
+ * Creates the commands of a holder class without reflection.
+ * Implementations get generated by the command annotation processor as {@code <Holder>_Commands}
+ * next to the holder and are picked up by {@link CommandFactory#parseCommands}.
+ */
+public interface CommandRegistrar
+{
+    String SUFFIX = "_Commands";
+
+    /**
+     * @param factory the factory to create the descriptors with
+     * @param manager the manager
+     * @param owner   the owner of the commands
+     * @param holder  the holder instance
+     *
+     * @return the commands of the holder
+     */
+    List<BaseCommand> parseCommands(CommandFactory factory, CommandManager manager, CommandOwner owner, Object holder);
+}
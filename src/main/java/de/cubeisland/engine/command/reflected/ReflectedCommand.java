@@ -22,7 +22,6 @@
  */
 package de.cubeisland.engine.command.reflected;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import de.cubeisland.engine.command.*;
@@ -33,18 +32,35 @@ public class ReflectedCommand extends BaseCommand
 {
     private final Method method;
     private final Object holder;
+    private final CommandInvoker invoker;
 
     public ReflectedCommand(CommandManager manager, ReflectedCommandDescriptor descriptor)
     {
         super(manager, descriptor);
         this.method = descriptor.getMethod();
-        this.holder = descriptor.getAlias();
+        this.holder = descriptor.getHolder();
+        if (descriptor.getInvoker() == null && this.method != null)
+        {
+            this.invoker = new ReflectiveInvoker(this.holder, this.method);
+        }
+        else
+        {
+            this.invoker = descriptor.getInvoker();
+        }
+    }
+
+    /**
+     * Returns the invoker calling the method of this command or null if this command is a container
+     */
+    public CommandInvoker getInvoker()
+    {
+        return invoker;
     }
 
     @Override
     public CommandResult run(final BaseCommandContext context)
     {
-        if (method == null)
+        if (invoker == null)
         {
             this.help(context);
             return null;
@@ -52,23 +68,19 @@ public class ReflectedCommand extends BaseCommand
 
         try
         {
-            Object result = this.method.invoke(this.holder, context);
+            Object result = this.invoker.invoke(context);
             if (result instanceof CommandResult)
             {
                 return (CommandResult)result;
             }
         }
-        catch (IllegalAccessException e)
+        catch (CommandException e)
         {
-            throw new RuntimeException(e);
+            throw e;
         }
-        catch (InvocationTargetException e)
+        catch (Exception e)
         {
-            if (e.getCause() instanceof CommandException)
-            {
-                throw (CommandException)e.getCause();
-            }
-            throw new RuntimeException(e.getCause());
+            throw new RuntimeException(e);
         }
         return null;
     }
@@ -76,7 +88,7 @@ public class ReflectedCommand extends BaseCommand
     @Override
     public void help(BaseCommandContext ctx)
     {
-        if (method == null)
+        if (invoker == null)
         {
             this.containerHelp(ctx);
         }
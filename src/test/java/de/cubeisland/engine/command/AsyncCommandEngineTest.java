@@ -0,0 +1,242 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import de.cubeisland.engine.command.reflected.annotation.AsyncCall;
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.Grouped;
+import de.cubeisland.engine.command.reflected.annotation.Indexed;
+import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncCommandEngineTest
+{
+    private static final Executor SYNC = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    private TestCommandManager manager;
+    private AsyncCommandEngine engine;
+    private Holder holder;
+    private TestCommandSender alice;
+    private TestCommandSender bob;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = new TestCommandManager();
+        this.holder = new Holder();
+        this.manager.registerCommands(null, this.holder);
+        this.engine = new AsyncCommandEngine(4, SYNC);
+        this.manager.getExecutor().setAsyncEngine(this.engine);
+        this.alice = new TestCommandSender("alice");
+        this.bob = new TestCommandSender("bob");
+    }
+
+    @After
+    public void tearDown() throws InterruptedException
+    {
+        this.engine.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCommandsOfASenderRunInOrder() throws InterruptedException
+    {
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 100; i++)
+        {
+            this.manager.runCommand(this.alice, "work " + i);
+            this.manager.runCommand(this.bob, "work " + i);
+            expected.add(String.valueOf(i));
+        }
+        assertTrue(this.engine.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(expected, this.holder.calls("alice"));
+        assertEquals(expected, this.holder.calls("bob"));
+        assertTrue(this.manager.getExceptions().isEmpty());
+    }
+
+    @Test
+    public void testSendersRunInParallel() throws InterruptedException
+    {
+        // alice waits for bob, this only finishes if bob does not wait for alice
+        this.manager.runCommand(this.alice, "await");
+        this.manager.runCommand(this.bob, "release");
+        assertTrue(this.engine.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("released"), this.holder.calls("alice"));
+    }
+
+    @Test
+    public void testIdleLanesAreReclaimed() throws InterruptedException
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            this.manager.runCommand(new TestCommandSender("sender" + i), "work " + i);
+        }
+        assertTrue(this.engine.shutdown(5, TimeUnit.SECONDS));
+        assertLanesReclaimed();
+    }
+
+    @Test
+    public void testShutdownDrainsQueuedCommands() throws InterruptedException
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            this.manager.runCommand(this.alice, "sleep " + i);
+        }
+        assertTrue(this.engine.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(5, this.holder.calls("alice").size());
+        assertEquals(0, this.engine.getInFlight());
+        assertTrue(this.engine.isShutdown());
+
+        // after the shutdown commands run on the calling thread
+        this.manager.runCommand(this.alice, "work 5");
+        assertEquals(6, this.holder.calls("alice").size());
+    }
+
+    @Test
+    public void testErrorsAreReportedAndTheLaneContinues() throws InterruptedException
+    {
+        this.manager.runCommand(this.alice, "error");
+        this.manager.runCommand(this.alice, "work 1");
+        assertTrue(this.engine.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(1, this.manager.getExceptions().size());
+        assertTrue(this.manager.getExceptions().get(0) instanceof AssertionError);
+        assertEquals(Collections.singletonList("1"), this.holder.calls("alice"));
+        assertLanesReclaimed();
+    }
+
+    @Test
+    public void testErrorsEscapingATaskDoNotStallTheLane() throws InterruptedException
+    {
+        // the sync executor fails while reporting, so the error escapes the task
+        this.engine = new AsyncCommandEngine(2, new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                throw new AssertionError("broken sync executor");
+            }
+        });
+        this.manager.getExecutor().setAsyncEngine(this.engine);
+        this.manager.runCommand(this.alice, "error");
+        this.manager.runCommand(this.alice, "work 1");
+        assertTrue(this.engine.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("1"), this.holder.calls("alice"));
+        assertLanesReclaimed();
+    }
+
+    private void assertLanesReclaimed() throws InterruptedException
+    {
+        // lanes are removed right after their last command finished
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.engine.getLaneCount() > 0 && System.nanoTime() < deadline)
+        {
+            Thread.sleep(1);
+        }
+        assertEquals(0, this.engine.getLaneCount());
+        assertFalse(this.engine.submit(this.manager.getExecutor(), null));
+    }
+
+    public static class Holder
+    {
+        private final List<String[]> calls = Collections.synchronizedList(new ArrayList<String[]>());
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private List<String> calls(String sender)
+        {
+            List<String> calls = new ArrayList<String>();
+            synchronized (this.calls)
+            {
+                for (String[] call : this.calls)
+                {
+                    if (call[0].equals(sender))
+                    {
+                        calls.add(call[1]);
+                    }
+                }
+            }
+            return calls;
+        }
+
+        private void record(BaseCommandContext context, String value)
+        {
+            this.calls.add(new String[]{context.getSender().getName(), value});
+        }
+
+        @AsyncCall
+        @Command(name = "work", desc = "Records its arg")
+        @IndexedParams(@Grouped(@Indexed(label = "value")))
+        public void work(BaseCommandContext context)
+        {
+            this.record(context, context.getString(0));
+        }
+
+        @AsyncCall
+        @Command(name = "sleep", desc = "Records its arg after a while")
+        @IndexedParams(@Grouped(@Indexed(label = "value")))
+        public void sleep(BaseCommandContext context) throws InterruptedException
+        {
+            Thread.sleep(20);
+            this.record(context, context.getString(0));
+        }
+
+        @AsyncCall
+        @Command(name = "await", desc = "Waits for release")
+        public void await(BaseCommandContext context) throws InterruptedException
+        {
+            this.record(context, this.latch.await(5, TimeUnit.SECONDS) ? "released" : "timed out");
+        }
+
+        @AsyncCall
+        @Command(name = "release", desc = "Releases await")
+        public void release(BaseCommandContext context)
+        {
+            this.latch.countDown();
+        }
+
+        @AsyncCall
+        @Command(name = "error", desc = "Throws an error")
+        public void error(BaseCommandContext context)
+        {
+            throw new AssertionError("failed");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import de.cubeisland.engine.command.exception.InvalidArgumentException;
+import de.cubeisland.engine.command.reader.CompositeReader;
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.Grouped;
+import de.cubeisland.engine.command.reflected.annotation.Indexed;
+import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
+import de.cubeisland.engine.command.reflected.annotation.NamedParams;
+import de.cubeisland.engine.command.reflected.annotation.Param;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Accesses the indexed values of a command with a composite parameter
+ */
+public class BaseCommandContextTest
+{
+    private TestCommandManager manager;
+    private Holder holder;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = new TestCommandManager();
+        this.manager.getReaders().registerReader(new VectorReader(), Vector.class);
+        this.holder = new Holder();
+        this.manager.registerCommands(null, this.holder);
+    }
+
+    @Test
+    public void testCompositeCountsAsOneValue()
+    {
+        assertTrue(this.manager.runCommand(new TestCommandSender("tester"), "move 1 2 3 4 5"));
+        assertTrue(this.manager.getExceptions().isEmpty());
+        BaseCommandContext context = this.holder.context;
+        assertEquals(5, context.getRawIndexedCount());
+        assertEquals(3, context.getIndexedCount());
+        assertTrue(context.hasArg(2));
+        assertFalse(context.hasArg(3));
+        assertEquals(new Vector(1, 2, 3), context.getIndexed(0));
+        assertEquals(5, context.<Integer>getIndexed(2).intValue());
+        assertNull(context.getIndexed(3));
+    }
+
+    @Test
+    public void testStringsAreRawTokens()
+    {
+        this.manager.runCommand(new TestCommandSender("tester"), "move 1 2 3 4 5");
+        BaseCommandContext context = this.holder.context;
+        // the reader overwrote its tokens, the context must not see that
+        assertEquals(new Vector(1, 2, 3), context.getIndexed(0));
+        assertEquals("1 2 3 4 5", context.getStrings(0));
+        assertEquals("4 5", context.getStrings(1));
+        assertEquals("5", context.getStrings(2));
+        assertNull(context.getStrings(3));
+    }
+
+    @Test
+    public void testIncompleteComposite()
+    {
+        this.manager.runCommand(new TestCommandSender("tester"), "move 1 2");
+        assertEquals(1, this.manager.getExceptions().size());
+    }
+
+    @Test
+    public void testErrorPositionIsTheValueIndex()
+    {
+        this.manager.runCommand(new TestCommandSender("tester"), "move 1 2 3 x");
+        BaseCommandContext context = this.holder.context;
+        try
+        {
+            context.getIndexed(1);
+        }
+        catch (InvalidArgumentException e)
+        {
+            assertEquals(2, e.getPosition());
+            assertEquals("x", e.getInput());
+            return;
+        }
+        throw new AssertionError("The arg was read");
+    }
+
+    @Test
+    public void testPrimitiveAccessors()
+    {
+        this.manager.runCommand(new TestCommandSender("tester"), "set 5 5000000000 1.5 name whole 2.0 ratio 0.5");
+        BaseCommandContext context = this.holder.context;
+        assertEquals(5, context.getInt(0));
+        assertEquals(5L, context.getLong(0));
+        assertEquals(5.0, context.getDouble(0), 0);
+        assertEquals(5000000000L, context.getLong(1));
+        assertEquals(5000000000.0, context.getDouble(1), 0);
+        assertEquals(1.5, context.getDouble(2), 0);
+        assertEquals(2, context.getInt("whole"));
+        assertEquals(2L, context.getLong("whole"));
+        assertEquals(0.5, context.getDouble("ratio"), 0);
+        assertEquals(7, context.getInt(4, 7));
+        assertEquals(7, context.getInt("missing", 7));
+        assertEquals(7L, context.getLong("big", 7L));
+    }
+
+    @Test
+    public void testPrimitiveAccessorsDoNotTruncate()
+    {
+        this.manager.runCommand(new TestCommandSender("tester"), "set 5 5000000000 1.5 name ratio 0.5 big 1e19");
+        BaseCommandContext context = this.holder.context;
+        assertThrows(ArithmeticException.class, context, "getInt", 1);
+        assertThrows(ArithmeticException.class, context, "getInt", 2);
+        assertThrows(ArithmeticException.class, context, "getLong", 2);
+        assertThrows(ArithmeticException.class, context, "getInt", "ratio");
+        assertThrows(ArithmeticException.class, context, "getLong", "big");
+        assertThrows(ClassCastException.class, context, "getInt", 3);
+        assertThrows(ClassCastException.class, context, "getLong", 3);
+        assertThrows(ClassCastException.class, context, "getDouble", 3);
+    }
+
+    private static void assertThrows(Class<? extends RuntimeException> expected, BaseCommandContext context,
+                                     String accessor, Object arg)
+    {
+        try
+        {
+            if ("getInt".equals(accessor))
+            {
+                if (arg instanceof String)
+                {
+                    context.getInt((String)arg);
+                }
+                else
+                {
+                    context.getInt((Integer)arg);
+                }
+            }
+            else if ("getLong".equals(accessor))
+            {
+                if (arg instanceof String)
+                {
+                    context.getLong((String)arg);
+                }
+                else
+                {
+                    context.getLong((Integer)arg);
+                }
+            }
+            else
+            {
+                context.getDouble((Integer)arg);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            assertEquals(expected, e.getClass());
+            return;
+        }
+        throw new AssertionError(accessor + "(" + arg + ") did not throw");
+    }
+
+    public static class Holder
+    {
+        private BaseCommandContext context;
+
+        @Command(name = "move", desc = "Moves by a vector")
+        @IndexedParams({@Grouped(@Indexed(label = "vector", type = Vector.class)),
+                        @Grouped(value = @Indexed(label = "a", type = Integer.class), req = false),
+                        @Grouped(value = @Indexed(label = "b", type = Integer.class), req = false)})
+        public void move(BaseCommandContext context)
+        {
+            this.context = context;
+        }
+
+        @Command(name = "set", desc = "Sets numbers")
+        @IndexedParams({@Grouped(@Indexed(label = "int", type = Integer.class)),
+                        @Grouped(@Indexed(label = "long", type = Long.class)),
+                        @Grouped(@Indexed(label = "double", type = Double.class)),
+                        @Grouped(@Indexed(label = "name"))})
+        @NamedParams({@Param(name = "whole", type = Double.class),
+                      @Param(name = "ratio", type = Double.class),
+                      @Param(name = "big", type = Double.class)})
+        public void set(BaseCommandContext context)
+        {
+            this.context = context;
+        }
+    }
+
+    static class Vector
+    {
+        private final int x;
+        private final int y;
+        private final int z;
+
+        private Vector(int x, int y, int z)
+        {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Vector))
+            {
+                return false;
+            }
+            Vector vector = (Vector)o;
+            return x == vector.x && y == vector.y && z == vector.z;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(new int[]{x, y, z});
+        }
+    }
+
+    private static class VectorReader extends CompositeReader
+    {
+        private VectorReader()
+        {
+            super(3);
+        }
+
+        @Override
+        public Object read(CommandLine args, int[] tokens, int offset, Locale locale) throws InvalidArgumentException
+        {
+            Vector vector = new Vector(readInt(args, tokens[offset], locale), readInt(args, tokens[offset + 1], locale),
+                                       readInt(args, tokens[offset + 2], locale));
+            Arrays.fill(tokens, 0);
+            return vector;
+        }
+    }
+}
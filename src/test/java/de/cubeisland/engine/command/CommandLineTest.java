@@ -0,0 +1,195 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommandLineTest
+{
+    private static List<String> strings(CommandLine line)
+    {
+        List<String> strings = new ArrayList<String>(line.size());
+        for (int i = 0; i < line.size(); i++)
+        {
+            strings.add(line.getString(i));
+        }
+        return strings;
+    }
+
+    private static void assertExtends(String previous, String line)
+    {
+        CommandLine extended = CommandLine.tokenize(previous).extend(line);
+        CommandLine expected = CommandLine.tokenize(line);
+        assertEquals(strings(expected), strings(extended));
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.getStart(i), extended.getStart(i));
+            assertEquals(expected.getEnd(i), extended.getEnd(i));
+            assertEquals(expected.isQuoted(i), extended.isQuoted(i));
+            assertEquals(expected.isEscaped(i), extended.isEscaped(i));
+        }
+    }
+
+    @Test
+    public void testWhitespace()
+    {
+        assertEquals(Arrays.asList("a", "b"), strings(CommandLine.tokenize("a  \tb")));
+        assertEquals(Arrays.asList("a", "b"), strings(CommandLine.tokenize("  a b")));
+    }
+
+    @Test
+    public void testTrailingEmptyToken()
+    {
+        assertEquals(Collections.singletonList(""), strings(CommandLine.tokenize("")));
+        assertEquals(Collections.singletonList(""), strings(CommandLine.tokenize("  ")));
+        assertEquals(Arrays.asList("a", ""), strings(CommandLine.tokenize("a ")));
+        CommandLine line = CommandLine.tokenize("a  ");
+        assertEquals(3, line.getStart(1));
+        assertEquals(0, line.getLength(1));
+        assertFalse(line.isQuoted(1));
+        assertEquals(Collections.singletonList("a"), strings(CommandLine.tokenize("a")));
+    }
+
+    @Test
+    public void testQuotes()
+    {
+        CommandLine line = CommandLine.tokenize("'a b' \"c d\"");
+        assertEquals(Arrays.asList("a b", "c d"), strings(line));
+        assertTrue(line.isQuoted(0));
+        assertEquals(1, line.getStart(0));
+        assertEquals(4, line.getEnd(0));
+        // a quote only closes the token if it is followed by whitespace
+        assertEquals(Arrays.asList("a\"b c", "d"), strings(CommandLine.tokenize("\"a\"b c\" d")));
+        assertEquals(Arrays.asList("it's", "fine"), strings(CommandLine.tokenize("it's fine")));
+        // an unterminated quote extends to the end of the line
+        assertEquals(Collections.singletonList("a b "), strings(CommandLine.tokenize("\"a b ")));
+        line = CommandLine.tokenize("\"\" a");
+        assertEquals(Arrays.asList("", "a"), strings(line));
+        assertTrue(line.isQuoted(0));
+    }
+
+    @Test
+    public void testEscapes()
+    {
+        CommandLine line = CommandLine.tokenize("a\\ b c");
+        assertEquals(Arrays.asList("a b", "c"), strings(line));
+        assertTrue(line.isEscaped(0));
+        assertFalse(line.isEscaped(1));
+        assertEquals(Collections.singletonList("\"a"), strings(CommandLine.tokenize("\\\"a")));
+        assertFalse(CommandLine.tokenize("\\\"a").isQuoted(0));
+        assertEquals(Collections.singletonList("a\\"), strings(CommandLine.tokenize("a\\\\")));
+        assertEquals(Collections.singletonList("a\\x"), strings(CommandLine.tokenize("a\\x")));
+        assertEquals(Collections.singletonList("a\"b"), strings(CommandLine.tokenize("\"a\\\"b\"")));
+    }
+
+    @Test
+    public void testOfMatchesTokenize()
+    {
+        String[][] lines = {
+            {"a"}, {"a", "b"}, {""}, {"a", ""}, {"", "a"}, {"a", "", "b"}, {"a", "", ""},
+            {"\"a", "b\"", "c"}, {"'a", "b"}, {"a\\", "b"}, {"a\tb"}, {"\ta"}, {"a\\"}, {"\"\""}
+        };
+        for (String[] args : lines)
+        {
+            StringBuilder joined = new StringBuilder();
+            for (int i = 0; i < args.length; i++)
+            {
+                joined.append(i == 0 ? "" : " ").append(args[i]);
+            }
+            CommandLine expected = CommandLine.tokenize(joined);
+            CommandLine line = CommandLine.of(args);
+            assertEquals(joined.toString(), line.getSource().toString());
+            assertEquals(Arrays.toString(args), strings(expected), strings(line));
+            for (int i = 0; i < expected.size(); i++)
+            {
+                assertEquals(expected.getStart(i), line.getStart(i));
+                assertEquals(expected.getEnd(i), line.getEnd(i));
+                assertEquals(expected.isQuoted(i), line.isQuoted(i));
+            }
+        }
+    }
+
+    @Test
+    public void testOfReadsCharsInAnyOrder()
+    {
+        CommandLine line = CommandLine.of(new String[]{"ab", "", "cd"});
+        CharSequence source = line.getSource();
+        String joined = "ab  cd";
+        for (int i = joined.length() - 1; i >= 0; i--)
+        {
+            assertEquals(joined.charAt(i), source.charAt(i));
+        }
+        for (int i = 0; i < joined.length(); i += 2)
+        {
+            assertEquals(joined.charAt(i), source.charAt(i));
+        }
+        assertEquals("b  c", source.subSequence(1, 5).toString());
+        assertEquals("cd", source.subSequence(4, 6).toString());
+    }
+
+    @Test
+    public void testExtendMatchesTokenize()
+    {
+        assertExtends("give", "give stone");
+        assertExtends("give ", "give stone 5");
+        assertExtends("give st", "give stone");
+        assertExtends("give stone", "give stone ");
+        assertExtends("say \"hello", "say \"hello world\" now");
+        assertExtends("say \"hello world\"", "say \"hello world\"s");
+        assertExtends("say hello\\", "say hello\\ world");
+        assertExtends("", "a b");
+    }
+
+    @Test
+    public void testExtendRejectsOtherLines()
+    {
+        CommandLine line = CommandLine.tokenize("give stone");
+        assertNull(line.extend("give ston"));
+        assertNull(line.extend("take stone 5"));
+        assertNull(line.from(1).extend("give stone 5"));
+    }
+
+    @Test
+    public void testContinues()
+    {
+        CommandLine previous = CommandLine.of(new String[]{"give", "st"});
+        assertTrue(CommandLine.of(new String[]{"give", "stone"}).continues(previous));
+        assertTrue(CommandLine.of(new String[]{"give", "stone", ""}).continues(previous));
+        assertTrue(CommandLine.of(new String[]{"give", "s"}).continues(previous));
+        assertFalse(CommandLine.of(new String[]{"take", "stone"}).continues(previous));
+        assertFalse(CommandLine.of(new String[]{"give"}).continues(previous));
+        assertFalse(CommandLine.of(new String[]{"give", "stone"}).continues(CommandLine.EMPTY));
+        // the quote joins the last arg with the previous one, so the closed tokens differ
+        assertFalse(CommandLine.of(new String[]{"\"give", "st\""}).continues(previous));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Stack;
+
+import de.cubeisland.engine.command.reflected.CommandFactory;
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CommandTreeTest
+{
+    private TestCommandManager manager;
+    private CommandTree tree;
+    private BaseCommand give;
+    private BaseCommand all;
+    private Stack<String> labels;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = new TestCommandManager();
+        this.manager.registerCommands(null, new GiveHolder());
+        this.manager.registerCommands(null, new RootHolder());
+        this.tree = this.manager.getCommandTree();
+        this.give = this.manager.getCommand("give");
+        this.all = this.manager.getCommand("all");
+        this.labels = new Stack<String>();
+    }
+
+    private BaseCommand resolve(BaseCommand command, String line)
+    {
+        return this.tree.resolve(command, CommandLine.tokenize(line), this.labels);
+    }
+
+    @Test
+    public void testRoots()
+    {
+        assertSame(this.give, this.resolve(null, "give stone"));
+        assertEquals(Collections.singletonList("give"), this.labels);
+        this.labels.clear();
+        assertSame(this.manager.getCommand("gift"), this.resolve(null, "gift"));
+        this.labels.clear();
+        assertNull(this.resolve(null, "gi stone"));
+        assertTrue(this.labels.isEmpty());
+    }
+
+    @Test
+    public void testChildren()
+    {
+        assertSame(this.all, this.resolve(null, "give all stone"));
+        assertEquals(Arrays.asList("give", "all"), this.labels);
+        this.labels.clear();
+        assertSame(this.all, this.resolve(this.give, "all stone"));
+        assertEquals(Collections.singletonList("all"), this.labels);
+        this.labels.clear();
+        // a child is only found below its parent
+        assertNull(this.resolve(null, "all"));
+        assertSame(this.give, this.resolve(null, "give gift"));
+    }
+
+    @Test
+    public void testAliases()
+    {
+        this.all.addAlias("everyone", this.give);
+        BaseCommand alias = this.resolve(null, "give everyone stone");
+        assertTrue(alias instanceof AliasCommand);
+        assertSame(this.all, ((AliasCommand)alias).getTarget());
+        assertEquals(Arrays.asList("give", "everyone"), this.labels);
+    }
+
+    @Test
+    public void testCaseFolding()
+    {
+        assertSame(this.all, this.resolve(null, "GIVE All"));
+        assertEquals(Arrays.asList("GIVE", "All"), this.labels);
+        BaseCommand item = this.manager.getCommand("Item");
+        assertSame(item, this.resolve(null, "give item"));
+        assertSame(item, this.resolve(null, "give ITEM"));
+    }
+
+    @Test
+    public void testQuotedTokenStaysOnOneLevel()
+    {
+        assertNull(this.resolve(null, "\"give all\" stone"));
+        assertNull(this.resolve(null, "give\\ all stone"));
+        assertSame(this.give, this.resolve(null, "give \"all stone\""));
+        assertEquals(Collections.singletonList("give"), this.labels);
+        this.labels.clear();
+        assertSame(this.all, this.resolve(null, "\"give\" 'all'"));
+        assertEquals(Arrays.asList("give", "all"), this.labels);
+    }
+
+    @Test
+    public void testCommandsNotInTheTree()
+    {
+        CommandFactory factory = new CommandFactory(new TestCommandManager.TestPermissionProvider());
+        List<BaseCommand> commands = factory.parseCommands(this.manager, null, new GiveHolder());
+        BaseCommand give = commands.get(0);
+        for (BaseCommand child : commands.subList(1, commands.size()))
+        {
+            give.addChild(child);
+        }
+        BaseCommand found = CommandExecutor.descend(give, new TestCommandSender("tester"),
+                                                    CommandLine.tokenize("All stone"), this.labels);
+        assertEquals("all", found.getName());
+        assertEquals(Collections.singletonList("All"), this.labels);
+        assertSame(give, found.getParent());
+    }
+
+    public static class GiveHolder implements CommandHolder
+    {
+        @Command(name = "give", desc = "Gives items")
+        public GiveHolder()
+        {
+        }
+
+        @Command(name = "all", desc = "Gives items to everyone")
+        public void all(BaseCommandContext context)
+        {
+        }
+
+        @Command(name = "Item", desc = "Gives an item")
+        public void item(BaseCommandContext context)
+        {
+        }
+    }
+
+    public static class RootHolder
+    {
+        @Command(name = "gift", desc = "Gifts items")
+        public void gift(BaseCommandContext context)
+        {
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.List;
+import java.util.UUID;
+
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.Flag;
+import de.cubeisland.engine.command.reflected.annotation.Flags;
+import de.cubeisland.engine.command.reflected.annotation.Grouped;
+import de.cubeisland.engine.command.reflected.annotation.Indexed;
+import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
+import de.cubeisland.engine.command.reflected.annotation.NamedParams;
+import de.cubeisland.engine.command.reflected.annotation.Param;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Resumes the parsing of completion requests from the checkpoint of the previous request
+ */
+public class CompletionSessionTest
+{
+    private TestCommandManager manager;
+    private BaseCommand give;
+    private TestCommandSender sender;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = new TestCommandManager();
+        this.manager.registerCommands(null, new Holder());
+        this.give = this.manager.getCommand("give");
+        this.sender = new TestCommandSender("tester");
+    }
+
+    private static String describe(BaseCommandContext context)
+    {
+        return context.getRawIndexed() + " " + context.getRawNamed() + " " + context.hasFlag("s");
+    }
+
+    private void assertParsed(BaseCommandContext context, String args)
+    {
+        BaseCommandContext expected = new CompletionSession().update(this.give, this.sender, "give", args);
+        assertEquals(describe(expected), describe(context));
+    }
+
+    @Test
+    public void testResumeWhileTyping()
+    {
+        CompletionSession session = new CompletionSession();
+        // the first arg could select a child command, so parsing resumes after it
+        BaseCommandContext context = session.update(this.give, this.sender, "give", "stone ");
+        String line = "stone 5 -s to bob";
+        for (int i = 7; i <= line.length(); i++)
+        {
+            String args = line.substring(0, i);
+            BaseCommandContext resumed = session.update(this.give, this.sender, "give", args);
+            assertSame(context, resumed);
+            assertParsed(resumed, args);
+        }
+    }
+
+    @Test
+    public void testResumeFromArgs()
+    {
+        CompletionSession session = new CompletionSession();
+        BaseCommandContext context = session.update(this.give, this.sender, "give", new String[]{"stone", ""});
+        BaseCommandContext resumed = session.update(this.give, this.sender, "give", new String[]{"stone", "5", "t"});
+        assertSame(context, resumed);
+        assertParsed(resumed, "stone 5 t");
+        resumed = session.update(this.give, this.sender, "give", new String[]{"stone", "5", "to", "b"});
+        assertSame(context, resumed);
+        assertParsed(resumed, "stone 5 to b");
+    }
+
+    @Test
+    public void testChangedLineIsParsedAgain()
+    {
+        CompletionSession session = new CompletionSession();
+        BaseCommandContext context = session.update(this.give, this.sender, "give", "stone 5 ");
+        BaseCommandContext parsed = session.update(this.give, this.sender, "give", "dirt 5 ");
+        assertNotSame(context, parsed);
+        assertParsed(parsed, "dirt 5 ");
+        parsed = session.update(this.give, this.sender, "other", "dirt 5 6");
+        assertParsed(parsed, "dirt 5 6");
+    }
+
+    @Test
+    public void testSenderWithoutId()
+    {
+        TestCommandSender console = new TestCommandSender("console")
+        {
+            @Override
+            public UUID getUniqueId()
+            {
+                return null;
+            }
+        };
+        CommandExecutor executor = this.manager.getExecutor();
+        List<String> first = executor.onTabComplete(this.give, console, "give", "stone 5 ");
+        List<String> second = executor.onTabComplete(this.give, console, "give", new String[]{"stone", "5", ""});
+        assertEquals(first, second);
+        executor.clearCompletionSession(console);
+        assertEquals(first, executor.onTabComplete(this.give, console, "give", "stone 5 "));
+        assertEquals(0, this.manager.getExceptions().size());
+    }
+
+    public static class Holder
+    {
+        @Command(name = "give", desc = "Gives items")
+        @IndexedParams({@Grouped(@Indexed(label = "item")),
+                        @Grouped(value = @Indexed(label = "amount", type = Integer.class), req = false)})
+        @NamedParams(@Param(name = "to"))
+        @Flags(@Flag(name = "s"))
+        public void give(BaseCommandContext context)
+        {
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.Flag;
+import de.cubeisland.engine.command.reflected.annotation.Flags;
+import de.cubeisland.engine.command.reflected.annotation.Grouped;
+import de.cubeisland.engine.command.reflected.annotation.Indexed;
+import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
+import de.cubeisland.engine.command.reflected.annotation.NamedParams;
+import de.cubeisland.engine.command.reflected.annotation.Param;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rebinds parsed contexts to commands of the same and of a different layout
+ */
+public class ContextFactoryTest
+{
+    private TestCommandManager manager;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = new TestCommandManager();
+        this.manager.registerCommands(null, new Holder());
+    }
+
+    private BaseCommandContext parse(BaseCommand command, String args)
+    {
+        Stack<String> labels = new Stack<String>();
+        labels.push(command.getName());
+        return command.getContextFactory().parse(command, new TestCommandSender("tester"), labels, CommandLine.tokenize(args));
+    }
+
+    private BaseCommandContext rebind(BaseCommandContext context, BaseCommand command)
+    {
+        command.getContextFactory().rebind(context, command);
+        return context;
+    }
+
+    @Test
+    public void testSameLayoutKeepsTheTokens()
+    {
+        BaseCommand numbers = this.manager.getCommand("numbers");
+        BaseCommand words = this.manager.getCommand("words");
+        assertTrue(numbers.getContextFactory().getPlan().hasSameLayout(words.getContextFactory().getPlan()));
+
+        BaseCommandContext context = this.parse(numbers, "5 6");
+        assertEquals(Integer.valueOf(5), context.<Integer>getIndexed(0));
+        this.rebind(context, words);
+        assertSame(words, context.getCommand());
+        assertSame(words.getContextFactory().getPlan(), context.getPlan());
+        assertEquals(Arrays.asList("5", "6"), context.getRawIndexed());
+        // values converted for the old command are read again
+        assertEquals("5", context.<String>getIndexed(0));
+        assertEquals("6", context.<String>getIndexed(1));
+    }
+
+    @Test
+    public void testDifferentLayoutRereadsTheTokens()
+    {
+        BaseCommand words = this.manager.getCommand("words");
+        BaseCommand give = this.manager.getCommand("give");
+        assertFalse(words.getContextFactory().getPlan().hasSameLayout(give.getContextFactory().getPlan()));
+
+        BaseCommandContext context = this.parse(words, "stone to tester -s");
+        assertEquals(4, context.getIndexedCount());
+        this.rebind(context, give);
+        assertSame(give, context.getCommand());
+        assertSame(give.getContextFactory().getPlan(), context.getPlan());
+        assertEquals(Arrays.asList("stone"), context.getRawIndexed());
+        assertEquals("stone", context.getString(0));
+        assertEquals("tester", context.getString("to"));
+        assertTrue(context.hasFlag("s"));
+
+        this.rebind(context, words);
+        assertEquals(Arrays.asList("stone", "to", "tester", "-s"), context.getRawIndexed());
+        assertFalse(context.hasFlag("s"));
+    }
+
+    public static class Holder
+    {
+        @Command(name = "numbers", desc = "Numbers")
+        @IndexedParams(@Grouped(value = @Indexed(label = "numbers", type = Integer.class), greedy = true))
+        public void numbers(BaseCommandContext context)
+        {
+        }
+
+        @Command(name = "words", desc = "Words")
+        @IndexedParams(@Grouped(value = @Indexed(label = "words"), greedy = true))
+        public void words(BaseCommandContext context)
+        {
+        }
+
+        @Command(name = "give", desc = "Gives")
+        @IndexedParams(@Grouped(@Indexed(label = "item")))
+        @NamedParams(@Param(name = "to"))
+        @Flags(@Flag(name = "s", longName = "silent"))
+        public void give(BaseCommandContext context)
+        {
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Stack;
+
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.Grouped;
+import de.cubeisland.engine.command.reflected.annotation.Indexed;
+import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Parses contexts of a pooled command and hands them back to their arena
+ */
+public class ParseArenaTest
+{
+    private BaseCommand command;
+    private ContextFactory factory;
+    private TestCommandSender sender;
+
+    @Before
+    public void setUp()
+    {
+        TestCommandManager manager = new TestCommandManager();
+        manager.registerCommands(null, new Holder());
+        this.command = manager.getCommand("count");
+        this.factory = this.command.getContextFactory().setPooled(true);
+        this.sender = new TestCommandSender("tester");
+    }
+
+    private BaseCommandContext parse(String args)
+    {
+        Stack<String> labels = new Stack<String>();
+        labels.push("count");
+        return this.factory.parse(this.command, this.sender, labels, CommandLine.tokenize(args));
+    }
+
+    @Test
+    public void testReleasedContextsMustNotBeUsed()
+    {
+        BaseCommandContext context = this.parse("5");
+        assertTrue(context.isPooled());
+        assertEquals(5, context.getInt(0));
+        context.release();
+        context.release(); // releasing twice does nothing
+        try
+        {
+            context.getInt(0);
+            fail();
+        }
+        catch (IllegalStateException ignored)
+        {
+        }
+        try
+        {
+            context.getRawIndexed();
+            fail();
+        }
+        catch (IllegalStateException ignored)
+        {
+        }
+    }
+
+    @Test
+    public void testReleasedContextsAreReused()
+    {
+        BaseCommandContext context = this.parse("5");
+        context.release();
+        BaseCommandContext reused = this.parse("6 7");
+        assertSame(context, reused);
+        assertEquals(6, reused.getInt(0));
+        assertEquals(7, reused.getInt(1));
+        assertNotSame(reused, this.parse("8"));
+    }
+
+    @Test
+    public void testContextsReleasedOnAnotherThreadReturnToTheirArena() throws InterruptedException
+    {
+        final BaseCommandContext first = this.parse("1");
+        final BaseCommandContext second = this.parse("2");
+        final BaseCommandContext[] parsed = new BaseCommandContext[1];
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                first.release();
+                second.release();
+                parsed[0] = parse("3");
+            }
+        };
+        thread.start();
+        thread.join();
+        // the other thread has its own arena
+        assertNotSame(first, parsed[0]);
+        assertNotSame(second, parsed[0]);
+        BaseCommandContext context = this.parse("4");
+        assertTrue(context == first || context == second);
+        assertEquals(4, context.getInt(0));
+        BaseCommandContext other = this.parse("5");
+        assertTrue(other == first || other == second);
+        assertNotSame(context, other);
+    }
+
+    @Test
+    public void testUnpooledContextsStayUsable()
+    {
+        this.factory.setPooled(false);
+        BaseCommandContext context = this.parse("5");
+        context.release();
+        assertEquals(5, context.getInt(0));
+        assertNotSame(context, this.parse("5"));
+    }
+
+    public static class Holder
+    {
+        @Command(name = "count", desc = "Counts")
+        @IndexedParams(@Grouped(value = @Indexed(label = "numbers", type = Integer.class), greedy = true))
+        public void count(BaseCommandContext context)
+        {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.Locale;
+
+import de.cubeisland.engine.command.exception.InvalidArgumentException;
+import de.cubeisland.engine.command.reader.ArgumentReader;
+import de.cubeisland.engine.command.reader.ReaderRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParsePlanTest
+{
+    private static final ArgumentReader POINT_READER = new ArgumentReader()
+    {
+        @Override
+        public Object read(String arg, Locale locale) throws InvalidArgumentException
+        {
+            return new Point();
+        }
+    };
+
+    @Test
+    public void testLocalReaderIsResolved()
+    {
+        ReaderRegistry readers = new ReaderRegistry(ReaderRegistry.global());
+        readers.registerReader(POINT_READER, Point.class);
+        ContextFactory factory = new ContextFactory().setReaders(readers);
+        factory.addIndexed(new CommandParameterIndexed(new String[]{"point"}, new Class<?>[]{Point.class}, false, false,
+                                                       1, null));
+        factory.addParameter(new CommandParameter("at", "", Point.class, null));
+        ParsePlan plan = factory.getPlan();
+        assertSame(POINT_READER, plan.getIndexedReaders(0)[0]);
+        assertSame(POINT_READER, plan.getParameterReader(0));
+    }
+
+    @Test
+    public void testMissingReaderFailsOnCompile()
+    {
+        ContextFactory factory = new ContextFactory();
+        factory.addParameter(new CommandParameter("at", "", Point.class, null));
+        try
+        {
+            factory.compile();
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(e.getMessage().contains("'at'"));
+        }
+    }
+
+    private static class Point
+    {
+    }
+}
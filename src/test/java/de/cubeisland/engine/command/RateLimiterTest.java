@@ -0,0 +1,214 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.cubeisland.engine.command.exception.RateLimitedException;
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.RateLimit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest
+{
+    private static final CommandOwner OWNER = new CommandOwner()
+    {
+    };
+
+    private TestCommandManager manager;
+    private RateLimiter limiter;
+    private TestCommandSender sender;
+    private Holder holder;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = new TestCommandManager();
+        this.holder = new Holder();
+        this.manager.registerCommands(OWNER, this.holder);
+        // the child is parsed by another manager so it is only reachable through its parent
+        TestCommandManager other = new TestCommandManager();
+        other.registerCommands(OWNER, new ChildHolder());
+        this.manager.getCommand("parent").addChild(other.getCommand("child"));
+        this.limiter = this.manager.getExecutor().getRateLimiter();
+        this.sender = new TestCommandSender("tester");
+    }
+
+    private int admitted(String command, int calls)
+    {
+        BaseCommand cmd = this.manager.getCommand(command);
+        int admitted = 0;
+        for (int i = 0; i < calls; i++)
+        {
+            if (this.limiter.acquire(this.sender, cmd) == 0)
+            {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    @Test
+    public void testBurstThenWait()
+    {
+        assertEquals(3, this.admitted("limited", 3));
+        long wait = this.limiter.acquire(this.sender, this.manager.getCommand("limited"));
+        assertTrue(wait > 0);
+        assertTrue(wait <= TimeUnit.MINUTES.toNanos(20));
+        assertEquals(0, this.admitted("limited", 3));
+    }
+
+    @Test
+    public void testSendersHaveTheirOwnBuckets()
+    {
+        assertEquals(3, this.admitted("limited", 5));
+        TestCommandSender console = new TestCommandSender("console")
+        {
+            @Override
+            public UUID getUniqueId()
+            {
+                return null;
+            }
+        };
+        assertEquals(0, this.limiter.acquire(console, this.manager.getCommand("limited")));
+        this.limiter.reset(this.sender);
+        assertEquals(3, this.admitted("limited", 5));
+    }
+
+    @Test
+    public void testRejectedCallsAreRefunded()
+    {
+        this.limiter.setSenderLimit(new CommandRateLimit(10, 1, TimeUnit.HOURS));
+        this.limiter.setOwnerLimit(OWNER, new CommandRateLimit(10, 1, TimeUnit.HOURS));
+        assertEquals(3, this.admitted("limited", 20));
+        // the rejected calls did not take from the sender and owner buckets
+        assertEquals(7, this.admitted("free", 20));
+    }
+
+    @Test
+    public void testRejectedSubcommandsAreRefunded()
+    {
+        this.limiter.setSenderLimit(new CommandRateLimit(10, 1, TimeUnit.HOURS));
+        for (int i = 0; i < 4; i++)
+        {
+            this.manager.runCommand(this.sender, "parent child");
+        }
+        assertEquals(1, this.holder.children.get());
+        assertEquals(3, this.manager.getExceptions().size());
+        assertTrue(this.manager.getExceptions().get(0) instanceof RateLimitedException);
+        // only the admitted call used up a token of the parent and the sender
+        assertEquals(4, this.admitted("parent", 10));
+        assertEquals(5, this.admitted("free", 10));
+    }
+
+    @Test
+    public void testConcurrentCallsTakeEachTokenOnce() throws InterruptedException
+    {
+        final BaseCommand command = this.manager.getCommand("many");
+        final AtomicInteger admitted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++)
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    for (int j = 0; j < 1000; j++)
+                    {
+                        if (limiter.acquire(sender, command) == 0)
+                        {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals(1000, admitted.get());
+        assertFalse(this.limiter.acquire(this.sender, command) == 0);
+    }
+
+    public static class Holder
+    {
+        private final AtomicInteger children = new AtomicInteger();
+
+        @Command(name = "limited", desc = "Three calls per hour")
+        @RateLimit(permits = 3, period = 1, unit = TimeUnit.HOURS)
+        public void limited(BaseCommandContext context)
+        {
+        }
+
+        @Command(name = "many", desc = "A thousand calls per hour")
+        @RateLimit(permits = 1000, period = 1, unit = TimeUnit.HOURS)
+        public void many(BaseCommandContext context)
+        {
+        }
+
+        @Command(name = "free", desc = "Not limited")
+        public void free(BaseCommandContext context)
+        {
+        }
+
+        @Command(name = "parent", desc = "Five calls per hour")
+        @RateLimit(permits = 5, period = 1, unit = TimeUnit.HOURS)
+        public void parent(BaseCommandContext context)
+        {
+        }
+    }
+
+    public class ChildHolder
+    {
+        @Command(name = "child", desc = "One call per hour")
+        @RateLimit(permits = 1, period = 1, unit = TimeUnit.HOURS)
+        public void child(BaseCommandContext context)
+        {
+            holder.children.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SymbolTableTest
+{
+    @Test
+    public void testInternAndLookup()
+    {
+        SymbolTable symbols = new SymbolTable();
+        int give = symbols.intern("Give");
+        assertEquals(give, symbols.intern("give"));
+        assertEquals(give, symbols.lookup("GIVE"));
+        assertEquals(give, symbols.lookup("/give stone", 1, 5));
+        assertEquals("give", symbols.getName(give));
+        assertEquals(SymbolTable.UNKNOWN, symbols.lookup("take"));
+        assertEquals(SymbolTable.UNKNOWN, symbols.lookup("giv"));
+        assertEquals(SymbolTable.UNKNOWN, symbols.lookup(""));
+    }
+
+    @Test
+    public void testGrowth()
+    {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i, symbols.intern("Name" + i));
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i, symbols.lookup("name" + i));
+            assertEquals("name" + i, symbols.getName(i));
+        }
+        assertEquals(SymbolTable.UNKNOWN, symbols.lookup("name1000"));
+    }
+
+    @Test
+    public void testLookupDoesNotAllocate()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return; // allocations can not be measured on this VM
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+        {
+            return;
+        }
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < 100; i++)
+        {
+            symbols.intern("name" + i);
+        }
+        CommandLine line = CommandLine.tokenize("NAME42 Name7 other");
+        CharSequence source = line.getSource();
+        int sum = 0;
+        for (int i = 0; i < 20000; i++)
+        {
+            sum += symbols.lookup(source, line.getStart(0), line.getEnd(0));
+        }
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 20000; i++)
+        {
+            sum += symbols.lookup(source, line.getStart(0), line.getEnd(0));
+            sum += symbols.lookup(source, line.getStart(1), line.getEnd(1));
+            sum += symbols.lookup(source, line.getStart(2), line.getEnd(2));
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertEquals(20000 * 42 + 20000 * (42 + 7 + SymbolTable.UNKNOWN), sum);
+        // only the measurement itself may allocate
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void testSymbolMap()
+    {
+        SymbolTable symbols = new SymbolTable();
+        SymbolMap<String> map = new SymbolMap<String>();
+        int b = symbols.intern("b");
+        int a = symbols.intern("a");
+        int c = symbols.intern("c");
+        assertNull(map.put(c, "C"));
+        assertNull(map.put(a, "A"));
+        assertNull(map.put(b, "B"));
+        assertEquals("B", map.put(b, "B2"));
+        assertEquals(3, map.size());
+        assertEquals("A", map.get(symbols.lookup("A")));
+        assertNull(map.get(SymbolTable.UNKNOWN));
+        assertEquals(Arrays.asList("B2", "A", "C"), map.values());
+        assertEquals("A", map.remove(a));
+        assertNull(map.remove(a));
+        assertNull(map.get(a));
+        assertEquals(Arrays.asList("B2", "C"), map.values());
+        try
+        {
+            map.put(a, null);
+            fail();
+        }
+        catch (IllegalArgumentException ignored)
+        {
+        }
+    }
+}
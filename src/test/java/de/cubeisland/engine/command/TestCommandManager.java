@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.cubeisland.engine.command.reflected.CommandFactory;
+import de.cubeisland.engine.command.reflected.annotation.Permission;
+
+import static java.util.Locale.ENGLISH;
+
+/**
+ * A command manager that keeps its commands in a map and collects the exceptions of failed calls
+ */
+public class TestCommandManager extends ReflectedCommandManager
+{
+    private final Map<String, BaseCommand> commands = new HashMap<String, BaseCommand>();
+
+    public TestCommandManager()
+    {
+        super(new TestExecutor(), new CommandFactory(new TestPermissionProvider()));
+    }
+
+    @Override
+    protected void registerCommand0(BaseCommand command)
+    {
+        this.commands.put(command.getName().toLowerCase(ENGLISH), command);
+        command.setRegistered();
+    }
+
+    @Override
+    protected void logTabCompletion(BaseCommandSender sender, BaseCommand command, String[] args)
+    {
+    }
+
+    @Override
+    protected void logExecution(BaseCommandSender sender, BaseCommand command, String[] args)
+    {
+    }
+
+    @Override
+    public BaseCommand getCommand(String name)
+    {
+        return this.commands.get(name.toLowerCase(ENGLISH));
+    }
+
+    /**
+     * Returns the exceptions thrown by the command calls so far
+     */
+    public List<Throwable> getExceptions()
+    {
+        return ((TestExecutor)this.getExecutor()).exceptions;
+    }
+
+    private static class TestExecutor extends CommandExecutor
+    {
+        private final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        @Override
+        protected void handleCommandException(BaseCommand cmd, BaseCommandContext ctx, BaseCommandSender sender,
+                                              Throwable t)
+        {
+            this.exceptions.add(t);
+        }
+    }
+
+    static class TestPermissionProvider implements PermissionProvider
+    {
+        @Override
+        public CommandPermission getPermission(Permission annotation, final String commandName, boolean checkPerm)
+        {
+            return new CommandPermission()
+            {
+                @Override
+                public boolean hasPerm(Permissible permissible)
+                {
+                    return true;
+                }
+
+                @Override
+                public String getName()
+                {
+                    return commandName;
+                }
+            };
+        }
+
+        @Override
+        public CommandPermission getPermission(Permission annotation, CommandPermission basePerm)
+        {
+            return basePerm;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A sender with every permission that records the messages sent to it
+ */
+public class TestCommandSender implements BaseCommandSender
+{
+    private final String name;
+    private final UUID uniqueId = UUID.randomUUID();
+    private final List<String> messages = new ArrayList<String>();
+
+    public TestCommandSender(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public boolean hasPermission(String name)
+    {
+        return true;
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public UUID getUniqueId()
+    {
+        return this.uniqueId;
+    }
+
+    @Override
+    public String getDisplayName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public Locale getLocale()
+    {
+        return Locale.ENGLISH;
+    }
+
+    @Override
+    public void sendMessage(String message)
+    {
+        this.messages.add(message);
+    }
+
+    @Override
+    public BaseCommandSender sendTranslated(String message, Object... params)
+    {
+        this.messages.add(this.getTranslation(message, params));
+        return this;
+    }
+
+    @Override
+    public BaseCommandSender sendTranslatedN(int n, String singular, String plural, Object... params)
+    {
+        this.messages.add(this.getTranslationN(n, singular, plural, params));
+        return this;
+    }
+
+    @Override
+    public String getTranslation(String message, Object... params)
+    {
+        return String.format(message, params);
+    }
+
+    @Override
+    public String getTranslationN(int n, String singular, String plural, Object... params)
+    {
+        return String.format(n == 1 ? singular : plural, params);
+    }
+
+    public List<String> getMessages()
+    {
+        return this.messages;
+    }
+}
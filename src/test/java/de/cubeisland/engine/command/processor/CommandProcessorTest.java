@@ -0,0 +1,226 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.processor;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import de.cubeisland.engine.command.reflected.CommandRegistrar;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommandProcessorTest
+{
+    private static final String HOLDER = "package sample;\n"
+        + "import java.util.concurrent.TimeUnit;\n"
+        + "import de.cubeisland.engine.command.BaseCommandContext;\n"
+        + "import de.cubeisland.engine.command.CommandHolder;\n"
+        + "import de.cubeisland.engine.command.completer.YesNoCompeleter;\n"
+        + "import de.cubeisland.engine.command.reflected.annotation.*;\n"
+        + "public class Holder {\n"
+        + "    @Command(name = \"give\", desc = \"gives items\")\n"
+        + "    @IndexedParams({@Grouped(@Indexed(label = \"item\", completer = YesNoCompeleter.class)),\n"
+        + "                    @Grouped(req = false, value = @Indexed(label = {\"x\", \"y\"}, type = {Integer.class, Integer.class}))})\n"
+        + "    @NamedParams(@Param(name = \"to\", aliases = \"t\", type = Integer.class))\n"
+        + "    @Flags(@Flag(name = \"s\", longName = \"silent\"))\n"
+        + "    @Permission(\"give\") @Alias(names = \"g\") @AsyncCall\n"
+        + "    @RateLimit(permits = 2, period = 5, unit = TimeUnit.SECONDS)\n"
+        + "    public void give(BaseCommandContext context) {}\n"
+        + "    public static class Child implements CommandHolder {\n"
+        + "        @Command(desc = \"container\") public Child() {}\n"
+        + "        @Command(desc = \"run\") public String run(BaseCommandContext context) throws Exception { return null; }\n"
+        + "    }\n"
+        + "}\n";
+
+    private JavaCompiler compiler;
+    private File output;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.output = File.createTempFile("processor", "");
+        assertTrue(this.output.delete() && this.output.mkdir());
+    }
+
+    @After
+    public void tearDown()
+    {
+        delete(this.output);
+    }
+
+    private static void delete(File file)
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (File child : files)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(String name, String source) throws Exception
+    {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = this.compiler.getStandardFileManager(diagnostics, null, null);
+        try
+        {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(this.output));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Arrays.asList(this.output));
+            List<String> options = Arrays.asList("-Xlint:all", "-Xlint:-options",
+                                                 "-classpath", System.getProperty("java.class.path"));
+            CompilationTask task = this.compiler.getTask(null, fileManager, diagnostics, options, null,
+                                                         Arrays.asList(new Source(name, source)));
+            task.setProcessors(Arrays.asList(new CommandProcessor()));
+            task.call();
+        }
+        finally
+        {
+            fileManager.close();
+        }
+        return diagnostics.getDiagnostics();
+    }
+
+    private static List<Diagnostic<? extends JavaFileObject>> filter(List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                                                                     Kind... kinds)
+    {
+        List<Diagnostic<? extends JavaFileObject>> filtered = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics)
+        {
+            if (Arrays.asList(kinds).contains(diagnostic.getKind()))
+            {
+                filtered.add(diagnostic);
+            }
+        }
+        return filtered;
+    }
+
+    @Test
+    public void testGeneratedRegistrarsCompileWithoutWarnings() throws Exception
+    {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = this.compile("sample.Holder", HOLDER);
+        assertEquals(new ArrayList<Diagnostic<? extends JavaFileObject>>(),
+                     filter(diagnostics, Kind.ERROR, Kind.WARNING, Kind.MANDATORY_WARNING));
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{this.output.toURI().toURL()},
+                                                   this.getClass().getClassLoader());
+        assertTrue(CommandRegistrar.class.isAssignableFrom(loader.loadClass("sample.Holder_Commands")));
+        assertTrue(CommandRegistrar.class.isAssignableFrom(loader.loadClass("sample.Holder_Child_Commands")));
+    }
+
+    @Test
+    public void testInvalidSignatureIsAnError() throws Exception
+    {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = this.compile("sample.Invalid", "package sample;\n"
+            + "import de.cubeisland.engine.command.reflected.annotation.Command;\n"
+            + "public class Invalid {\n"
+            + "    @Command(desc = \"invalid\") public void invalid(String context) {}\n"
+            + "}\n");
+        List<Diagnostic<? extends JavaFileObject>> errors = filter(diagnostics, Kind.ERROR);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage(null).contains("required method signature"));
+        assertFalse(new File(this.output, "sample/Invalid_Commands.java").exists());
+    }
+
+    @Test
+    public void testDuplicateParameterNameIsAnError() throws Exception
+    {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = this.compile("sample.Duplicate", "package sample;\n"
+            + "import de.cubeisland.engine.command.BaseCommandContext;\n"
+            + "import de.cubeisland.engine.command.reflected.annotation.*;\n"
+            + "public class Duplicate {\n"
+            + "    @Command(desc = \"duplicate\") @NamedParams({@Param(name = \"to\"), @Param(name = \"x\", aliases = \"TO\")})\n"
+            + "    public void duplicate(BaseCommandContext context) {}\n"
+            + "}\n");
+        List<Diagnostic<? extends JavaFileObject>> errors = filter(diagnostics, Kind.ERROR);
+        assertEquals(1, errors.size());
+        assertNotNull(errors.get(0).getSource());
+    }
+
+    @Test
+    public void testDuplicateNamesIgnoreTheDefaultLocale() throws Exception
+    {
+        Locale locale = Locale.getDefault();
+        // the turkish I does not lowercase to i
+        Locale.setDefault(new Locale("tr", "TR"));
+        try
+        {
+            List<Diagnostic<? extends JavaFileObject>> diagnostics = this.compile("sample.Turkish", "package sample;\n"
+                + "import de.cubeisland.engine.command.BaseCommandContext;\n"
+                + "import de.cubeisland.engine.command.reflected.annotation.*;\n"
+                + "public class Turkish {\n"
+                + "    @Command(desc = \"turkish\") @NamedParams({@Param(name = \"item\"), @Param(name = \"x\", aliases = \"ITEM\")})\n"
+                + "    @Flags({@Flag(name = \"i\"), @Flag(name = \"I\")})\n"
+                + "    public void turkish(BaseCommandContext context) {}\n"
+                + "}\n");
+            assertEquals(2, filter(diagnostics, Kind.ERROR).size());
+        }
+        finally
+        {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static final class Source extends SimpleJavaFileObject
+    {
+        private final String source;
+
+        private Source(String name, String source)
+        {
+            super(URI.create("string:///" + name.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                  JavaFileObject.Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return this.source;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import de.cubeisland.engine.command.BaseCommandContext;
+import de.cubeisland.engine.command.TestCommandManager;
+import de.cubeisland.engine.command.TestCommandSender;
+import de.cubeisland.engine.command.exception.InvalidArgumentException;
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import de.cubeisland.engine.command.reflected.annotation.Grouped;
+import de.cubeisland.engine.command.reflected.annotation.Indexed;
+import de.cubeisland.engine.command.reflected.annotation.IndexedParams;
+import de.cubeisland.engine.command.reflected.annotation.NamedParams;
+import de.cubeisland.engine.command.reflected.annotation.Param;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Reads names with a reader backed by an in-memory stand-in for a player lookup and counts the backend calls
+ */
+public class BatchArgumentReaderTest
+{
+    private PlayerBackend backend;
+    private TestCommandManager manager;
+    private Holder holder;
+
+    @Before
+    public void setUp()
+    {
+        this.backend = new PlayerBackend("alice", "bob", "carol", "dave");
+        this.manager = new TestCommandManager();
+        this.manager.getReaders().registerReader(new PlayerReader(this.backend), Player.class);
+        this.holder = new Holder();
+        this.manager.registerCommands(null, this.holder);
+    }
+
+    private BaseCommandContext run(String commandLine)
+    {
+        this.manager.runCommand(new TestCommandSender("tester"), commandLine);
+        return this.holder.context;
+    }
+
+    @Test
+    public void testAllArgsAreReadWithOneLookup()
+    {
+        BaseCommandContext context = this.run("tp alice bob carol to dave");
+        assertEquals(Arrays.<Object>asList(this.backend.get("alice"), this.backend.get("bob"),
+                                           this.backend.get("carol")), context.getIndexed());
+        assertSame(this.backend.get("dave"), context.getParam("to"));
+        assertEquals(1, this.backend.batchLookups);
+        assertEquals(0, this.backend.lookups);
+    }
+
+    @Test
+    public void testFailedArgsAreNotBatchedAgain()
+    {
+        BaseCommandContext context = this.run("tp alice eve carol to mallory");
+        assertSame(this.backend.get("alice"), context.getIndexed(0));
+        assertSame(this.backend.get("carol"), context.getIndexed(2));
+        assertEquals(1, this.backend.batchLookups);
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                context.getIndexed(1);
+                fail();
+            }
+            catch (InvalidArgumentException e)
+            {
+                assertEquals("eve", e.getInput());
+            }
+            try
+            {
+                context.getParam("to");
+                fail();
+            }
+            catch (InvalidArgumentException e)
+            {
+                assertEquals("mallory", e.getInput());
+            }
+        }
+        assertEquals(1, this.backend.batchLookups);
+        // only the failed args are looked up alone to report their error
+        assertEquals(4, this.backend.lookups);
+    }
+
+    public static class Holder
+    {
+        private BaseCommandContext context;
+
+        @Command(name = "tp", desc = "Teleports players")
+        @IndexedParams(@Grouped(value = @Indexed(label = "players", type = Player.class), greedy = true))
+        @NamedParams(@Param(name = "to", type = Player.class))
+        public void tp(BaseCommandContext context)
+        {
+            this.context = context;
+        }
+    }
+
+    public static class Player
+    {
+        private final String name;
+
+        public Player(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.name;
+        }
+    }
+
+    private static class PlayerBackend
+    {
+        private final Map<String, Player> players = new HashMap<String, Player>();
+        private int lookups = 0;
+        private int batchLookups = 0;
+
+        private PlayerBackend(String... names)
+        {
+            for (String name : names)
+            {
+                this.players.put(name, new Player(name));
+            }
+        }
+
+        private Player get(String name)
+        {
+            return this.players.get(name);
+        }
+
+        private Player lookup(String name)
+        {
+            this.lookups++;
+            return this.players.get(name);
+        }
+
+        private void lookupAll(String[] names, Object[] players)
+        {
+            this.batchLookups++;
+            for (int i = 0; i < names.length; i++)
+            {
+                Player player = this.players.get(names[i]);
+                if (player != null)
+                {
+                    players[i] = player;
+                }
+            }
+        }
+    }
+
+    private static class PlayerReader extends ArgumentReader implements BatchArgumentReader
+    {
+        private final PlayerBackend backend;
+
+        private PlayerReader(PlayerBackend backend)
+        {
+            this.backend = backend;
+        }
+
+        @Override
+        public Object read(String arg, Locale locale) throws InvalidArgumentException
+        {
+            Player player = this.backend.lookup(arg);
+            if (player == null)
+            {
+                throw new InvalidArgumentException("Unknown player {input}!");
+            }
+            return player;
+        }
+
+        @Override
+        public void readAll(String[] args, Object[] values, Locale locale)
+        {
+            this.backend.lookupAll(args, values);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecimalParserTest
+{
+    private static double parse(String arg, Locale locale)
+    {
+        return DecimalParser.parse(arg, 0, arg.length(), locale);
+    }
+
+    private static void assertParsed(double expected, String arg, Locale locale)
+    {
+        assertEquals(arg, Double.doubleToLongBits(expected), Double.doubleToLongBits(parse(arg, locale)));
+    }
+
+    private static void assertInvalid(String arg)
+    {
+        assertTrue(arg, Double.isNaN(parse(arg, Locale.US)));
+    }
+
+    @Test
+    public void testSimpleNumbers()
+    {
+        assertParsed(1.5, "1.5", Locale.US);
+        assertParsed(-2.25, "-2.25", Locale.US);
+        assertParsed(2, "+2", Locale.US);
+        assertParsed(0.5, ".5", Locale.US);
+        assertParsed(5, "5.", Locale.US);
+    }
+
+    @Test
+    public void testLocaleSeparators()
+    {
+        assertParsed(-12345.678, "-12,345.678", Locale.US);
+        assertParsed(12345.678, "12.345,678", Locale.GERMANY);
+        assertParsed(1.5, "1,5", Locale.GERMANY);
+        // the grouping separator of the locale is skipped
+        assertParsed(15, "1.5", Locale.GERMANY);
+    }
+
+    @Test
+    public void testManyDigitsTakeTheExactPath()
+    {
+        String[] args = {"1234567890.1234567890", "0.1000000000000000055511151231257827", "12345678901234567890",
+                         "9007199254740993", "3.141592653589793238462643383279"};
+        for (String arg : args)
+        {
+            assertParsed(Double.parseDouble(arg), arg, Locale.US);
+        }
+    }
+
+    @Test
+    public void testExponents()
+    {
+        assertParsed(1500, "1.5e3", Locale.US);
+        assertParsed(1e-5, "1E-5", Locale.US);
+        assertParsed(2.5e-300, "2.5e-300", Locale.US);
+        assertParsed(150, "1,5e2", Locale.GERMANY);
+        assertParsed(Double.POSITIVE_INFINITY, "1e400", Locale.US);
+        assertParsed(0, "1e-400", Locale.US);
+    }
+
+    @Test
+    public void testTrailingGarbageIsRejected()
+    {
+        assertInvalid("1.5x");
+        assertInvalid("1e");
+        assertInvalid("1..5");
+        assertInvalid("--1");
+        assertInvalid("x");
+        assertInvalid("");
+        assertInvalid("NaN");
+        assertInvalid("Infinity");
+    }
+}
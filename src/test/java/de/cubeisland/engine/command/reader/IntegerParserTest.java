@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntegerParserTest
+{
+    private static long parse(String arg, boolean separators, long min, long max)
+    {
+        return IntegerParser.parse(arg, 0, arg.length(), separators, min, max);
+    }
+
+    @Test
+    public void testRange()
+    {
+        assertEquals(Integer.MAX_VALUE, parse("2147483647", false, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(Integer.MIN_VALUE, parse("-2147483648", false, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(IntegerParser.INVALID, parse("2147483648", false, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(IntegerParser.INVALID, parse("-129", false, Byte.MIN_VALUE, Byte.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, parse("9223372036854775807", false, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSeparators()
+    {
+        assertEquals(-12345, parse("-12,345", true, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(IntegerParser.INVALID, parse("-12,345", false, Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testInvalid()
+    {
+        String[] args = {"", "-", "+", "--1", "1-", "1x", "x1"};
+        for (String arg : args)
+        {
+            assertEquals(arg, IntegerParser.INVALID, parse(arg, false, Long.MIN_VALUE, Long.MAX_VALUE));
+            assertFalse(arg, IntegerParser.isMinValue(arg, 0, arg.length(), false));
+        }
+    }
+
+    @Test
+    public void testMinValueIsToldApartFromInvalid()
+    {
+        String min = "-9223372036854775808";
+        assertEquals(Long.MIN_VALUE, parse(min, false, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertTrue(IntegerParser.isMinValue(min, 0, min.length(), false));
+        assertTrue(IntegerParser.isMinValue("-0009,223,372,036,854,775,808", 0, 29, true));
+        assertFalse(IntegerParser.isMinValue("-9223372036854775809", 0, 20, false));
+        assertFalse(IntegerParser.isMinValue("-92233720368547758080", 0, 21, false));
+        assertEquals(Long.MIN_VALUE, new LongReader().tryRead(min, null));
+    }
+}
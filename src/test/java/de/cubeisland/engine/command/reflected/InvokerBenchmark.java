@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reflected;
+
+import java.util.Stack;
+
+import de.cubeisland.engine.command.BaseCommandContext;
+import de.cubeisland.engine.command.CommandLine;
+import de.cubeisland.engine.command.TestCommandManager;
+import de.cubeisland.engine.command.TestCommandSender;
+
+/**
+ * Times the reflective invoker against the generated one, this is not part of the test suite.
+ * Run it with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=de.cubeisland.engine.command.reflected.InvokerBenchmark}
+ */
+public final class InvokerBenchmark
+{
+    private static final int ROUNDS = 5;
+    private static final int CALLS = 200000;
+
+    private InvokerBenchmark()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        TestCommandManager manager = new TestCommandManager();
+        ReflectiveInvokerTest.Holder holder = new ReflectiveInvokerTest.Holder();
+        manager.registerCommands(null, holder);
+        ReflectedCommand command = (ReflectedCommand)manager.getCommand("count");
+        Stack<String> labels = new Stack<String>();
+        labels.push("count");
+        BaseCommandContext context = new BaseCommandContext(command, new TestCommandSender("tester"), labels,
+                                                            CommandLine.EMPTY);
+
+        CommandInvoker reflective = new ReflectiveInvoker(holder, ReflectiveInvokerTest.Holder.class.getMethod(
+            "count", BaseCommandContext.class));
+        CommandInvoker generated = command.getInvoker();
+        long reflectiveTime = Long.MAX_VALUE;
+        long generatedTime = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            reflectiveTime = Math.min(reflectiveTime, time(reflective, context));
+            generatedTime = Math.min(generatedTime, time(generated, context));
+        }
+        System.out.println("ReflectiveInvoker: " + reflectiveTime / CALLS + " ns/call, generated invoker: "
+                               + generatedTime / CALLS + " ns/call");
+    }
+
+    private static long time(CommandInvoker invoker, BaseCommandContext context) throws Exception
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++)
+        {
+            invoker.invoke(context);
+        }
+        return System.nanoTime() - start;
+    }
+}
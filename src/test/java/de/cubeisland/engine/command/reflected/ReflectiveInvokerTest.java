@@ -0,0 +1,111 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013 Anselm Brehme, Phillip Schichtel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.cubeisland.engine.command.reflected;
+
+import java.io.IOException;
+import java.util.Stack;
+
+import de.cubeisland.engine.command.BaseCommandContext;
+import de.cubeisland.engine.command.CommandLine;
+import de.cubeisland.engine.command.TestCommandManager;
+import de.cubeisland.engine.command.TestCommandSender;
+import de.cubeisland.engine.command.reflected.annotation.Command;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the reflective invoker with the one the command processor generated for {@link Holder}
+ */
+public class ReflectiveInvokerTest
+{
+    private Holder holder;
+    private ReflectedCommand command;
+    private BaseCommandContext context;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        TestCommandManager manager = new TestCommandManager();
+        this.holder = new Holder();
+        manager.registerCommands(null, this.holder);
+        this.command = (ReflectedCommand)manager.getCommand("count");
+        Stack<String> labels = new Stack<String>();
+        labels.push("count");
+        this.context = new BaseCommandContext(this.command, new TestCommandSender("tester"), labels, CommandLine.EMPTY);
+    }
+
+    private CommandInvoker reflective(String name) throws NoSuchMethodException
+    {
+        return new ReflectiveInvoker(this.holder, Holder.class.getMethod(name, BaseCommandContext.class));
+    }
+
+    @Test
+    public void testGeneratedInvokerIsUsed()
+    {
+        assertNotNull(this.command.getInvoker());
+        assertFalse(this.command.getInvoker() instanceof ReflectiveInvoker);
+    }
+
+    @Test
+    public void testInvokersReturnTheSame() throws Exception
+    {
+        assertEquals(1, this.reflective("count").invoke(this.context));
+        assertEquals(2, this.command.getInvoker().invoke(this.context));
+    }
+
+    @Test
+    public void testExceptionsAreUnwrapped() throws Exception
+    {
+        try
+        {
+            this.reflective("fail").invoke(this.context);
+            fail();
+        }
+        catch (IOException e)
+        {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    public static class Holder
+    {
+        private int calls = 0;
+
+        @Command(name = "count", desc = "Counts its calls")
+        public Object count(BaseCommandContext context)
+        {
+            return ++this.calls;
+        }
+
+        @Command(name = "fail", desc = "Always fails")
+        public void fail(BaseCommandContext context) throws IOException
+        {
+            throw new IOException("failed");
+        }
+    }
+}